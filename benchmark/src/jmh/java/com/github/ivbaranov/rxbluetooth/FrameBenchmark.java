@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.decoders.CobsFrameDecoder;
+import com.github.ivbaranov.rxbluetooth.decoders.FrameDecoder;
+import com.github.ivbaranov.rxbluetooth.decoders.LengthFieldFrameDecoder;
+import com.github.ivbaranov.rxbluetooth.decoders.SlipFrameDecoder;
+import com.github.ivbaranov.rxbluetooth.transport.StreamTransport;
+import io.reactivex.schedulers.Schedulers;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Binary framing of 64 byte payloads. Every operation is one frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameBenchmark {
+  private static final int FRAMES = 10000;
+  private static final int PAYLOAD_LENGTH = 64;
+
+  public enum Framing {
+    LENGTH_FIELD, SLIP, COBS
+  }
+
+  @Param({ "LENGTH_FIELD", "SLIP", "COBS" })
+  public Framing framing;
+
+  private BluetoothConnection connection;
+
+  @Setup public void setUp() throws Exception {
+    byte[] payload = new byte[PAYLOAD_LENGTH];
+    new Random(42).nextBytes(payload);
+
+    connection = new BluetoothConnection(new StreamTransport(
+        new StandInStreams.RepeatingInputStream(StandInStreams.repeat(encode(payload), 100), 990),
+        new StandInStreams.DiscardingOutputStream(0)), Schedulers.trampoline(), null);
+  }
+
+  @TearDown public void tearDown() {
+    connection.closeConnection();
+  }
+
+  @Benchmark @OperationsPerInvocation(FRAMES)
+  public byte[] frames() {
+    return connection.observeFrames(decoder()).take(FRAMES).blockingLast();
+  }
+
+  private FrameDecoder decoder() {
+    switch (framing) {
+      case LENGTH_FIELD:
+        return new LengthFieldFrameDecoder(0, 2, 0, 2, 1024, java.nio.ByteOrder.BIG_ENDIAN);
+      case SLIP:
+        return new SlipFrameDecoder(1024);
+      default:
+        return new CobsFrameDecoder(1024);
+    }
+  }
+
+  private byte[] encode(byte[] payload) {
+    switch (framing) {
+      case LENGTH_FIELD: {
+        byte[] frame = new byte[payload.length + 2];
+        frame[0] = (byte) (payload.length >> 8);
+        frame[1] = (byte) payload.length;
+        System.arraycopy(payload, 0, frame, 2, payload.length);
+        return frame;
+      }
+      case SLIP: {
+        byte[] frame = new byte[payload.length * 2 + 1];
+        int length = 0;
+        for (byte b : payload) {
+          if (b == (byte) 0xC0) {
+            frame[length++] = (byte) 0xDB;
+            frame[length++] = (byte) 0xDC;
+          } else if (b == (byte) 0xDB) {
+            frame[length++] = (byte) 0xDB;
+            frame[length++] = (byte) 0xDD;
+          } else {
+            frame[length++] = b;
+          }
+        }
+        frame[length++] = (byte) 0xC0;
+        return java.util.Arrays.copyOf(frame, length);
+      }
+      default: {
+        byte[] frame = new byte[payload.length + 2];
+        int code = 0;
+        int length = 1;
+        for (byte b : payload) {
+          if (b == 0) {
+            frame[code] = (byte) (length - code);
+            code = length++;
+          } else {
+            frame[length++] = b;
+          }
+        }
+        frame[code] = (byte) (length - code);
+        frame[length++] = 0;
+        return java.util.Arrays.copyOf(frame, length);
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.transport.StreamTransport;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.DefaultSubscriber;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Read path over a stream of NMEA sentences. Operation is one line, chunk, buffer or byte depending
+ * on the stream, so scores are items per microsecond and microseconds per item, and the gc profiler
+ * reports bytes allocated per item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadBenchmark {
+  private static final byte[] LINE =
+      "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47\r\n".getBytes();
+  private static final Charset US_ASCII = Charset.forName("US-ASCII");
+  private static final int LINES = 10000;
+  private static final int CHUNKS = 1000;
+  private static final int BYTES = 1 << 20;
+
+  @Param({ "64", "990" })
+  public int packetSize;
+
+  private BluetoothConnection connection;
+  private BluetoothConnection pooledConnection;
+  private BufferPool pool;
+
+  @Setup public void setUp() throws Exception {
+    byte[] payload = StandInStreams.repeat(LINE, 100);
+    // Reading on the benchmark thread measures the pipeline itself, without thread hops.
+    connection = new BluetoothConnection(new StreamTransport(
+        new StandInStreams.RepeatingInputStream(payload, packetSize),
+        new StandInStreams.DiscardingOutputStream(0)), Schedulers.trampoline(), null);
+    // Buffer stream has a read loop of its own, so it needs a connection of its own.
+    pooledConnection = new BluetoothConnection(new StreamTransport(
+        new StandInStreams.RepeatingInputStream(payload, packetSize),
+        new StandInStreams.DiscardingOutputStream(0)), Schedulers.trampoline(), null);
+    pool = new BufferPool(1024, 4);
+  }
+
+  @TearDown public void tearDown() {
+    connection.closeConnection();
+    pooledConnection.closeConnection();
+  }
+
+  @Benchmark @OperationsPerInvocation(LINES)
+  public long stringStream() {
+    return connection.observeStringStream().take(LINES).count().blockingGet();
+  }
+
+  @Benchmark @OperationsPerInvocation(LINES)
+  public long charsetStringStream() {
+    return connection.observeStringStream(US_ASCII, 256, "\r\n").take(LINES).count()
+        .blockingGet();
+  }
+
+  @Benchmark @OperationsPerInvocation(LINES)
+  public long charSequenceStream() {
+    return connection.observeCharSequenceStream(US_ASCII, 256, "\r\n").take(LINES).count()
+        .blockingGet();
+  }
+
+  @Benchmark @OperationsPerInvocation(CHUNKS)
+  public byte[] chunkStream() {
+    return connection.observeChunkStream().take(CHUNKS).blockingLast();
+  }
+
+  @Benchmark @OperationsPerInvocation(CHUNKS)
+  public long bufferStream() {
+    ReleasingSubscriber subscriber = new ReleasingSubscriber(CHUNKS);
+    pooledConnection.observeBufferStream(pool).subscribe(subscriber);
+    return subscriber.bytes;
+  }
+
+  @Benchmark @OperationsPerInvocation(BYTES)
+  public long byteStream() {
+    return connection.observeByteStream().take(BYTES).count().blockingGet();
+  }
+
+  /** Requests buffers one at a time and releases each, as a long running reader would. */
+  private static final class ReleasingSubscriber extends DefaultSubscriber<PooledBuffer> {
+    private int remaining;
+    long bytes;
+
+    ReleasingSubscriber(int count) {
+      remaining = count;
+    }
+
+    @Override protected void onStart() {
+      request(1);
+    }
+
+    @Override public void onNext(PooledBuffer buffer) {
+      bytes += buffer.size();
+      buffer.release();
+      if (--remaining == 0) {
+        cancel();
+      } else {
+        request(1);
+      }
+    }
+
+    @Override public void onError(Throwable e) {
+      throw new AssertionError(e);
+    }
+
+    @Override public void onComplete() {
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** In-memory stand-ins for bluetooth socket streams. */
+final class StandInStreams {
+
+  /**
+   * Endless stream repeating the payload, returning at most {@code packetSize} bytes per read
+   * like an RFCOMM socket does.
+   */
+  static final class RepeatingInputStream extends InputStream {
+    private final byte[] payload;
+    private final int packetSize;
+    private int position;
+
+    RepeatingInputStream(byte[] payload, int packetSize) {
+      this.payload = payload;
+      this.packetSize = packetSize;
+    }
+
+    @Override public int read() {
+      int b = payload[position] & 0xFF;
+      position = (position + 1) % payload.length;
+      return b;
+    }
+
+    @Override public int read(byte[] b, int off, int len) {
+      int count = Math.min(Math.min(len, packetSize), payload.length - position);
+      System.arraycopy(payload, position, b, off, count);
+      position = (position + count) % payload.length;
+      return count;
+    }
+  }
+
+  /** Discards written bytes, spinning for {@code flushNanos} on every flush. */
+  static final class DiscardingOutputStream extends OutputStream {
+    private final long flushNanos;
+    long written;
+    long flushes;
+
+    DiscardingOutputStream(long flushNanos) {
+      this.flushNanos = flushNanos;
+    }
+
+    @Override public void write(int b) {
+      written++;
+    }
+
+    @Override public void write(byte[] b, int off, int len) {
+      written += len;
+    }
+
+    @Override public void flush() {
+      flushes++;
+      if (flushNanos > 0) {
+        long deadline = System.nanoTime() + flushNanos;
+        while (System.nanoTime() < deadline) {
+          // Emulates time spent to hand a packet to the stack.
+        }
+      }
+    }
+  }
+
+  /** Repeats {@code unit} {@code times} times. */
+  static byte[] repeat(byte[] unit, int times) {
+    byte[] result = new byte[unit.length * times];
+    for (int i = 0; i < times; i++) {
+      System.arraycopy(unit, 0, result, i * unit.length, unit.length);
+    }
+    return result;
+  }
+
+  private StandInStreams() {
+    throw new AssertionError("No instances.");
+  }
+}
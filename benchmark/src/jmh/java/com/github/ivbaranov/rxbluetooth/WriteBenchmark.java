@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.transport.StreamTransport;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Write path with short commands. Every operation is one command. {@code flushNanos} emulates the
+ * cost of handing a packet to the stack, which batching of {@code sendAsync} amortizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WriteBenchmark {
+  private static final byte[] COMMAND = "010C\r".getBytes();
+  private static final int COMMANDS = 1000;
+
+  @Param({ "0", "20000" })
+  public long flushNanos;
+
+  private BluetoothConnection connection;
+
+  @Setup public void setUp() throws Exception {
+    connection = new BluetoothConnection(new StreamTransport(
+        new StandInStreams.RepeatingInputStream(COMMAND, COMMAND.length),
+        new StandInStreams.DiscardingOutputStream(flushNanos)), Schedulers.trampoline(), null);
+  }
+
+  @TearDown public void tearDown() {
+    connection.closeConnection();
+  }
+
+  @Benchmark @OperationsPerInvocation(COMMANDS)
+  public boolean send() {
+    boolean sent = true;
+    for (int i = 0; i < COMMANDS; i++) {
+      sent &= connection.send(COMMAND);
+    }
+    return sent;
+  }
+
+  @Benchmark @OperationsPerInvocation(COMMANDS)
+  public void sendAsync() {
+    List<Completable> sends = new ArrayList<>(COMMANDS);
+    for (int i = 0; i < COMMANDS; i++) {
+      sends.add(connection.sendAsync(COMMAND));
+    }
+    Completable.merge(sends).blockingAwait();
+  }
+}
@@ -17,55 +17,188 @@ package com.github.ivbaranov.rxbluetooth;
 
 import android.bluetooth.BluetoothSocket;
 import android.util.Log;
+import androidx.annotation.Nullable;
+import com.github.ivbaranov.rxbluetooth.decoders.DelimiterFrameDecoder;
+import com.github.ivbaranov.rxbluetooth.decoders.FrameDecoder;
 import com.github.ivbaranov.rxbluetooth.exceptions.ConnectionClosedException;
-import io.reactivex.BackpressureStrategy;
+import com.github.ivbaranov.rxbluetooth.transport.BluetoothSocketTransport;
+import com.github.ivbaranov.rxbluetooth.transport.Transport;
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.CompletableOnSubscribe;
+import io.reactivex.Emitter;
 import io.reactivex.Flowable;
-import io.reactivex.FlowableEmitter;
-import io.reactivex.FlowableOnSubscribe;
-import io.reactivex.FlowableOperator;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.security.InvalidParameterException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import org.reactivestreams.Subscriber;
-import org.reactivestreams.Subscription;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.reactivestreams.Publisher;
 
 public final class BluetoothConnection {
 
   private static final String TAG = BluetoothConnection.class.getName();
+  private static final int DEFAULT_CHUNK_SIZE = 1024;
+  private static final int DEFAULT_BATCH_SIZE = 1024;
+  private static final int WRITE_BUFFER_SIZE = 4096;
+  private static final String READER_THREAD_NAME = "RxBluetooth-Reader";
 
-  private BluetoothSocket socket;
+  private static final FrameOperator.Mapper<String> STRING = new FrameOperator.Mapper<String>() {
+    @Override public String map(byte[] buffer, int offset, int length) {
+      return new String(buffer, offset, length);
+    }
+  };
+
+  private static final Function<byte[], Iterable<Byte>> BYTES =
+      new Function<byte[], Iterable<Byte>>() {
+        @Override public Iterable<Byte> apply(final byte[] chunk) {
+          return new Iterable<Byte>() {
+            @Override public Iterator<Byte> iterator() {
+              return new Iterator<Byte>() {
+                int index;
+
+                @Override public boolean hasNext() {
+                  return index < chunk.length;
+                }
 
-  InputStream inputStream;
+                @Override public Byte next() {
+                  if (index >= chunk.length) {
+                    throw new NoSuchElementException();
+                  }
+                  // Boxed bytes are cached, so no allocation happens here.
+                  return chunk[index++];
+                }
+
+                @Override public void remove() {
+                  throw new UnsupportedOperationException();
+                }
+              };
+            }
+          };
+        }
+      };
+
+  private final Transport transport;
+  private final ConnectionMetrics metrics;
+  private final Scheduler readerScheduler;
+  private final Scheduler deliveryScheduler;
+  private ExecutorService readerExecutor;
+
+  private InputStream inputStream;
   private OutputStream outputStream;
 
+  private Flowable<byte[]> observeChunkStream;
   private Flowable<Byte> observeInputStream;
+  private Flowable<PooledBuffer> observeBufferStream;
+  private BufferPool bufferPool;
+
+  private final Object writeLock = new Object();
+  private byte[] writeBuffer;
+  private volatile WriteQueue writeQueue;
+  private int maxBatchSize = DEFAULT_BATCH_SIZE;
+  private long maxBatchDelayNanos;
 
-  boolean connected = false;
+  volatile boolean connected = false;
+  private final AtomicReference<Runnable> onClose = new AtomicReference<>();
 
   /**
-   * Container for simplifying read and write from/to {@link BluetoothSocket}.
+   * Container for simplifying read and write from/to {@link BluetoothSocket}. Reads are done by a
+   * dedicated thread owned by the connection, data is emitted on that thread.
    *
    * @param socket bluetooth socket
    * @throws Exception if can't get input/output stream from the socket
    */
   public BluetoothConnection(BluetoothSocket socket) throws Exception {
-    if (socket == null) {
-      throw new InvalidParameterException("Bluetooth socket can't be null");
+    this(socket, null, null);
+  }
+
+  /**
+   * Container for simplifying read and write from/to {@link BluetoothSocket}.
+   *
+   * @param socket bluetooth socket
+   * @param readerScheduler scheduler to read the socket on, e.g. shared between connections one
+   * created with {@link #newReaderScheduler(int)}. Reads are blocking, so every connection read at
+   * the same time occupies a thread of the scheduler. If null, connection owns a dedicated
+   * thread, which is stopped by {@link #closeConnection()}.
+   * @param deliveryScheduler scheduler to emit data on. If null, data is emitted on the reader
+   * thread.
+   * @throws Exception if can't get input/output stream from the socket
+   */
+  public BluetoothConnection(BluetoothSocket socket, @Nullable Scheduler readerScheduler,
+      @Nullable Scheduler deliveryScheduler) throws Exception {
+    this(new BluetoothSocketTransport(socket), readerScheduler, deliveryScheduler);
+  }
+
+  /**
+   * Container for simplifying read and write from/to any {@link Transport}, e.g. {@link
+   * com.github.ivbaranov.rxbluetooth.transport.LoopbackTransport} to run the connection off
+   * device.
+   *
+   * @param transport transport to read from and write to
+   * @throws Exception if can't get input/output stream from the transport
+   */
+  public BluetoothConnection(Transport transport) throws Exception {
+    this(transport, null, null);
+  }
+
+  /**
+   * Container for simplifying read and write from/to any {@link Transport}.
+   *
+   * @param transport transport to read from and write to
+   * @param readerScheduler scheduler to read the transport on, see {@link
+   * #BluetoothConnection(BluetoothSocket, Scheduler, Scheduler)}
+   * @param deliveryScheduler scheduler to emit data on. If null, data is emitted on the reader
+   * thread.
+   * @throws Exception if can't get input/output stream from the transport
+   */
+  public BluetoothConnection(Transport transport, @Nullable Scheduler readerScheduler,
+      @Nullable Scheduler deliveryScheduler) throws Exception {
+    this(transport, readerScheduler, deliveryScheduler, new ConnectionMetrics());
+  }
+
+  /**
+   * Creates connection which records its counters to {@code metrics}, e.g. shared by successive
+   * connections to the same device.
+   */
+  BluetoothConnection(Transport transport, @Nullable Scheduler readerScheduler,
+      @Nullable Scheduler deliveryScheduler, ConnectionMetrics metrics) throws Exception {
+    if (transport == null) {
+      throw new InvalidParameterException("Transport can't be null");
     }
 
-    this.socket = socket;
+    this.transport = transport;
+    this.metrics = metrics;
+    this.readerScheduler = readerScheduler;
+    this.deliveryScheduler = deliveryScheduler;
 
     try {
-      inputStream = socket.getInputStream();
-      outputStream = socket.getOutputStream();
+      inputStream = transport.getInputStream();
+      outputStream = transport.getOutputStream();
 
       connected = true;
+      metrics.onConnected();
     } catch (IOException e) {
-      throw new Exception("Can't get stream from bluetooth socket");
+      throw new Exception("Can't get stream from transport");
     } finally {
       if (!connected) {
         closeConnection();
@@ -73,32 +206,101 @@ public final class BluetoothConnection {
     }
   }
 
+  /**
+   * Creates scheduler which can be shared by connections to read their sockets. Threads are named
+   * and daemon, idle threads are stopped after a minute.
+   *
+   * @param maxThreads maximum amount of connections read at the same time
+   * @return reader scheduler
+   */
+  public static Scheduler newReaderScheduler(int maxThreads) {
+    return Schedulers.from(newReaderExecutor(maxThreads));
+  }
+
+  /**
+   * Creates executor behind {@link #newReaderScheduler(int)}, for owners which shut it down.
+   */
+  static ExecutorService newReaderExecutor(int maxThreads) {
+    if (maxThreads <= 0) {
+      throw new InvalidParameterException("Amount of threads should be positive");
+    }
+
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 1,
+        TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+        new NamedThreadFactory(READER_THREAD_NAME));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Observes chunks of bytes from bluetooth's {@link InputStream} using default chunk size.
+   *
+   * @return RxJava Observable with chunks of bytes
+   * @see #observeChunkStream(int)
+   */
+  public Flowable<byte[]> observeChunkStream() {
+    return observeChunkStream(DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Observes chunks of bytes from bluetooth's {@link InputStream}. Every chunk contains whatever
+   * was available in the stream at the moment of the read, but no more than {@code maxChunkSize}
+   * bytes.
+   *
+   * <p>There is only one read loop per connection, shared by all byte, chunk and string streams,
+   * so {@code maxChunkSize} is taken into account only by the call which creates it.
+   *
+   * @param maxChunkSize maximum amount of bytes read at once
+   * @return RxJava Observable with chunks of bytes
+   */
+  public Flowable<byte[]> observeChunkStream(int maxChunkSize) {
+    return deliver(chunkStream(maxChunkSize));
+  }
+
+  /**
+   * Observes chunks of bytes from bluetooth's {@link InputStream} using default chunk size, keeping
+   * up to {@code capacity} chunks for a slow subscriber.
+   *
+   * @param capacity maximum amount of chunks kept for the subscriber
+   * @param strategy what to do when {@code capacity} is exceeded
+   * @return RxJava Observable with chunks of bytes
+   * @see #observeChunkStream(int)
+   * @see #observeByteStream(int, BackpressureOverflowStrategy)
+   */
+  public Flowable<byte[]> observeChunkStream(int capacity, BackpressureOverflowStrategy strategy) {
+    return deliver(bounded(chunkStream(DEFAULT_CHUNK_SIZE), capacity, strategy));
+  }
+
   /**
    * Observes byte from bluetooth's {@link InputStream}. Will be emitted per byte.
    *
    * @return RxJava Observable with {@link Byte}
    */
   public Flowable<Byte> observeByteStream() {
-    if (observeInputStream == null) {
-      observeInputStream = Flowable.create(new FlowableOnSubscribe<Byte>() {
-        @Override public void subscribe(final FlowableEmitter<Byte> subscriber) {
-          while (!subscriber.isCancelled()) {
-            try {
-              subscriber.onNext((byte) inputStream.read());
-            } catch (IOException e) {
-              connected = false;
-              subscriber.onError(new ConnectionClosedException("Can't read stream", e));
-            } finally {
-              if (!connected) {
-                closeConnection();
-              }
-            }
-          }
-        }
-      }, BackpressureStrategy.BUFFER).share();
-    }
+    return deliver(byteStream());
+  }
 
-    return observeInputStream;
+  /**
+   * Observes byte from bluetooth's {@link InputStream}, keeping up to {@code capacity} bytes for
+   * a slow subscriber.
+   *
+   * <p>By default streams of this connection read from the socket only as fast as they are
+   * consumed, at most one chunk ahead of what subscribers requested, leaving unread data to RFCOMM
+   * flow control. A delivery scheduler requests ahead like {@code observeOn()} does. Streams
+   * returned by bounded overloads keep reading and handle the overflow with {@code
+   * strategy}: {@link BackpressureOverflowStrategy#DROP_OLDEST} drops the oldest buffered item to
+   * keep the latest data, {@link BackpressureOverflowStrategy#DROP_LATEST} drops the newest
+   * buffered item to make room for the incoming one, or {@link
+   * BackpressureOverflowStrategy#ERROR} terminates with {@link
+   * io.reactivex.exceptions.MissingBackpressureException}. Capacity of 1 with {@code DROP_OLDEST}
+   * keeps only the latest item.
+   *
+   * @param capacity maximum amount of bytes kept for the subscriber
+   * @param strategy what to do when {@code capacity} is exceeded
+   * @return RxJava Observable with {@link Byte}
+   */
+  public Flowable<Byte> observeByteStream(int capacity, BackpressureOverflowStrategy strategy) {
+    return deliver(bounded(byteStream(), capacity, strategy));
   }
 
   /**
@@ -117,79 +319,392 @@ public final class BluetoothConnection {
    * @param delimiter char(s) used for string delimiter
    * @return RxJava Observable with {@link String}
    */
-  public Flowable<String> observeStringStream(final int... delimiter) {
-    return observeByteStream().lift(new FlowableOperator<String, Byte>() {
-      @Override public Subscriber<? super Byte> apply(final Subscriber<? super String> subscriber) {
-        return new Subscriber<Byte>() {
-          ArrayList<Byte> buffer = new ArrayList<>();
-          List<Integer> receivedDelimiters = new ArrayList<>();
+  public Flowable<String> observeStringStream(int... delimiter) {
+    return deliver(stringStream(delimiter));
+  }
 
-          @Override public void onSubscribe(Subscription d) {
-            subscriber.onSubscribe(d);
-          }
+  /**
+   * Observes string from bluetooth's {@link InputStream}, keeping up to {@code capacity} strings
+   * for a slow subscriber.
+   *
+   * @param capacity maximum amount of strings kept for the subscriber
+   * @param strategy what to do when {@code capacity} is exceeded
+   * @param delimiter char(s) used for string delimiter
+   * @return RxJava Observable with {@link String}
+   * @see #observeByteStream(int, BackpressureOverflowStrategy)
+   */
+  public Flowable<String> observeStringStream(int capacity, BackpressureOverflowStrategy strategy,
+      int... delimiter) {
+    return deliver(bounded(stringStream(delimiter), capacity, strategy));
+  }
 
-          @Override public void onComplete() {
-            if (!buffer.isEmpty()) {
-              emit();
-            }
-            subscriber.onComplete();
-          }
+  /**
+   * Observes lines of text from bluetooth's {@link InputStream} decoded with {@code charset}, with
+   * '\r' (Carriage Return) and '\n' (New Line) as delimiter.
+   *
+   * @param charset charset of the text
+   * @return RxJava Observable with {@link String}
+   * @see #observeStringStream(Charset, int, String)
+   */
+  public Flowable<String> observeStringStream(Charset charset) {
+    return observeStringStream(charset, Integer.MAX_VALUE, "\r\n");
+  }
 
-          @Override public void onError(Throwable e) {
-            if (!buffer.isEmpty()) {
-              emit();
+  /**
+   * Observes lines of text from bluetooth's {@link InputStream} decoded with {@code charset}.
+   * Bytes are decoded as they are read by a decoder reused for the whole stream, so characters
+   * split between reads are decoded correctly and delimiter is looked for in decoded text. Lines
+   * longer than {@code maxLineLength} terminate the stream with {@link
+   * com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException}.
+   *
+   * @param charset charset of the text
+   * @param maxLineLength maximum amount of chars in a line, not including delimiter
+   * @param delimiter char(s) used for line delimiter
+   * @return RxJava Observable with {@link String}
+   */
+  public Flowable<String> observeStringStream(Charset charset, int maxLineLength,
+      String delimiter) {
+    return deliver(lines(charset, maxLineLength, delimiter, LineOperator.STRING));
+  }
+
+  /**
+   * Observes lines of text from bluetooth's {@link InputStream} decoded with {@code charset}, as
+   * read-only views of a buffer reused for every line, e.g. to parse numbers without creating a
+   * {@link String} per line. Call {@code toString()} to keep a line.
+   *
+   * <p>A view is valid only until {@code onNext()} returns, so views are always emitted on the
+   * reader thread and the stream can't be passed through operators which queue items, like
+   * {@code observeOn()}.
+   *
+   * @param charset charset of the text
+   * @param maxLineLength maximum amount of chars in a line, not including delimiter
+   * @param delimiter char(s) used for line delimiter
+   * @return RxJava Observable with {@link CharSequence}
+   * @see #observeStringStream(Charset, int, String)
+   */
+  public Flowable<CharSequence> observeCharSequenceStream(Charset charset, int maxLineLength,
+      String delimiter) {
+    return lines(charset, maxLineLength, delimiter, LineOperator.VIEW);
+  }
+
+  /**
+   * Observes frames from bluetooth's {@link InputStream}, reassembled by {@code decoder}. See
+   * {@link com.github.ivbaranov.rxbluetooth.decoders} for built-in decoders.
+   *
+   * <p>Decoder keeps the state of incomplete frame, so the returned stream is shared by all its
+   * subscribers and the same decoder instance shouldn't be passed to this method twice.
+   *
+   * @param decoder frame decoder
+   * @return RxJava Observable with frames
+   */
+  public Flowable<byte[]> observeFrames(FrameDecoder decoder) {
+    return deliver(frames(decoder));
+  }
+
+  /**
+   * Observes frames from bluetooth's {@link InputStream}, keeping up to {@code capacity} frames
+   * for a slow subscriber.
+   *
+   * @param decoder frame decoder
+   * @param capacity maximum amount of frames kept for the subscriber
+   * @param strategy what to do when {@code capacity} is exceeded
+   * @return RxJava Observable with frames
+   * @see #observeFrames(FrameDecoder)
+   * @see #observeByteStream(int, BackpressureOverflowStrategy)
+   */
+  public Flowable<byte[]> observeFrames(FrameDecoder decoder, int capacity,
+      BackpressureOverflowStrategy strategy) {
+    return deliver(bounded(frames(decoder), capacity, strategy));
+  }
+
+  /**
+   * Observes chunks of bytes from bluetooth's {@link InputStream} read into buffers of {@code
+   * pool}. Every buffer contains whatever was available in the stream at the moment of the read,
+   * but no more than {@link BufferPool#getBufferSize()} bytes. Subscriber should call {@link
+   * PooledBuffer#release()} once it is done with the buffer, so that the following reads reuse it
+   * instead of allocating.
+   *
+   * <p>A buffer is taken for every requested item and the read loop reads at most one buffer
+   * ahead of the subscribers, so buffers are reused as long as the subscriber requests few of them
+   * ahead of releasing, e.g. one at a time, and the pool holds a couple more than that. Operators
+   * which prefetch, like {@code observeOn()} or a delivery scheduler of the connection, keep up to
+   * their prefetch amount of buffers in flight.
+   *
+   * <p>Buffer stream has a read loop of its own, so it can't be used together with byte, chunk,
+   * string or frame streams of the same connection. All subscribers of the buffer stream share
+   * the same buffers, which are released only once.
+   *
+   * @param pool pool to take the buffers from
+   * @return RxJava Observable with {@link PooledBuffer}
+   * @throws IllegalStateException if the connection is already read by other streams or with
+   * another pool
+   */
+  public Flowable<PooledBuffer> observeBufferStream(BufferPool pool) {
+    return deliver(bufferStream(pool));
+  }
+
+  private synchronized Flowable<byte[]> chunkStream(final int maxChunkSize) {
+    if (maxChunkSize <= 0) {
+      throw new InvalidParameterException("Chunk size should be positive");
+    }
+    if (observeBufferStream != null) {
+      throw new IllegalStateException("Connection is already read by a buffer stream");
+    }
+    if (!connected) {
+      return Flowable.error(connectionClosed());
+    }
+
+    if (observeChunkStream == null) {
+      // Bytes are read only when there is outstanding demand, so the loop is published with a
+      // prefetch of one instead of share(), which would request bufferSize() chunks regardless.
+      // Otherwise they are left in the socket, so that the RFCOMM flow control holds back the
+      // remote device.
+      observeChunkStream = readOnReader(Flowable.generate(new Callable<byte[]>() {
+        @Override public byte[] call() {
+          return new byte[maxChunkSize];
+        }
+      }, new BiConsumer<byte[], Emitter<byte[]>>() {
+        @Override public void accept(byte[] buffer, Emitter<byte[]> subscriber) {
+          try {
+            int read = read(buffer, 0, buffer.length);
+            subscriber.onNext(Arrays.copyOf(buffer, read));
+          } catch (IOException e) {
+            onReadError(e, subscriber);
+          } finally {
+            if (!connected) {
+              closeConnection();
             }
-            subscriber.onError(e);
           }
+        }
+      })).publish(1).refCount();
+    }
 
-          @Override public void onNext(Byte b) {
-            boolean found = false;
-            for (int d : delimiter) {
-              if (b == d) {
-                receivedDelimiters.add((int) b);
-                found = true;
-                break;
-              }
-            }
+    return observeChunkStream;
+  }
 
-            if (found) {
-              if (delimitersMatched()) {
-                emit();
-              }
+  private synchronized Flowable<PooledBuffer> bufferStream(final BufferPool pool) {
+    if (pool == null) {
+      throw new InvalidParameterException("Buffer pool can't be null");
+    }
+    if (observeChunkStream != null) {
+      throw new IllegalStateException("Connection is already read by other streams");
+    }
+    if (observeBufferStream != null && bufferPool != pool) {
+      throw new IllegalStateException("Connection is already read with another buffer pool");
+    }
+    if (!connected) {
+      return Flowable.error(connectionClosed());
+    }
+
+    if (observeBufferStream == null) {
+      bufferPool = pool;
+      // Reads at most one buffer ahead of the subscribers, share() would take up to bufferSize()
+      // of them from the pool regardless of demand.
+      observeBufferStream = readOnReader(Flowable.generate(new Callable<byte[]>() {
+        @Override public byte[] call() {
+          // Direct buffers have no array to read into, so they are filled from this one.
+          return pool.isDirect() ? new byte[pool.getBufferSize()] : null;
+        }
+      }, new BiConsumer<byte[], Emitter<PooledBuffer>>() {
+        @Override public void accept(byte[] scratch, Emitter<PooledBuffer> subscriber) {
+          PooledBuffer pooled = pool.acquire();
+          try {
+            ByteBuffer buffer = pooled.buffer();
+            int read;
+            if (scratch == null) {
+              read = read(buffer.array(), buffer.arrayOffset(), buffer.capacity());
             } else {
-              buffer.add(b);
+              read = read(scratch, 0, scratch.length);
+              buffer.clear();
+              buffer.put(scratch, 0, read);
+            }
+            pooled.filled(read);
+            subscriber.onNext(pooled);
+          } catch (IOException e) {
+            pooled.release();
+            onReadError(e, subscriber);
+          } finally {
+            if (!connected) {
+              closeConnection();
             }
           }
+        }
+      })).publish(1).refCount();
+    }
 
-          private void emit() {
-            if (buffer.isEmpty()) {
-              subscriber.onNext("");
-              return;
-            }
+    return observeBufferStream;
+  }
+
+  /**
+   * Reads at least one byte, blocking until it is available.
+   *
+   * @return amount of bytes read
+   */
+  private int read(byte[] buffer, int offset, int length) throws IOException {
+    int read;
+    do {
+      read = inputStream.read(buffer, offset, length);
+    } while (read == 0);
 
-            byte[] bArray = new byte[buffer.size()];
+    if (read < 0) {
+      throw new EOFException("End of stream reached");
+    }
+    metrics.onRead(read);
+    return read;
+  }
 
-            for (int i = 0; i < buffer.size(); i++) {
-              bArray[i] = buffer.get(i);
-            }
+  /**
+   * Subscribes to {@code source} on the reader scheduler, unless the connection is closed by then.
+   * Streams are shared, so they are subscribed again by subscribers coming after the close.
+   */
+  private <T> Flowable<T> readOnReader(final Flowable<T> source) {
+    return Flowable.defer(new Callable<Publisher<T>>() {
+      @Override public Publisher<T> call() {
+        if (!connected) {
+          return Flowable.error(connectionClosed());
+        }
+        return source.subscribeOn(readerScheduler());
+      }
+    });
+  }
+
+  private static ConnectionClosedException connectionClosed() {
+    return new ConnectionClosedException("Connection closed", null);
+  }
+
+  private void onReadError(IOException e, Emitter<?> subscriber) {
+    if (connected) {
+      metrics.onReadError();
+    }
+    connected = false;
+    subscriber.onError(new ConnectionClosedException("Can't read stream", e));
+  }
 
-            subscriber.onNext(new String(bArray));
-            buffer.clear();
-            receivedDelimiters.clear();
+  private Flowable<Byte> byteStream() {
+    if (observeInputStream == null) {
+      observeInputStream = chunkStream(DEFAULT_CHUNK_SIZE).flatMapIterable(BYTES, 1);
+    }
+
+    return observeInputStream;
+  }
+
+  private Flowable<String> stringStream(int... delimiter) {
+    if (delimiter.length == 0) {
+      throw new InvalidParameterException("Delimiter can't be empty");
+    }
+
+    final byte[] delimiterBytes = new byte[delimiter.length];
+    for (int i = 0; i < delimiter.length; i++) {
+      delimiterBytes[i] = (byte) delimiter[i];
+    }
+
+    return Flowable.defer(new Callable<Publisher<String>>() {
+      @Override public Publisher<String> call() {
+        return chunkStream(DEFAULT_CHUNK_SIZE).lift(
+            new FrameOperator<>(new DelimiterFrameDecoder(delimiterBytes), STRING))
+            .doOnNext(new Consumer<String>() {
+              @Override public void accept(String line) {
+                metrics.onFrameRead();
+              }
+            });
+      }
+    });
+  }
+
+  private <T> Flowable<T> lines(final Charset charset, final int maxLineLength,
+      final String delimiter, final LineOperator.Mapper<T> mapper) {
+    if (charset == null) {
+      throw new InvalidParameterException("Charset can't be null");
+    }
+    if (delimiter == null || delimiter.isEmpty()) {
+      throw new InvalidParameterException("Delimiter can't be empty");
+    }
+    if (maxLineLength <= 0) {
+      throw new InvalidParameterException("Max line length should be positive");
+    }
+
+    return Flowable.defer(new Callable<Publisher<T>>() {
+      @Override public Publisher<T> call() {
+        return chunkStream(DEFAULT_CHUNK_SIZE).lift(
+            new LineOperator<>(new LineDecoder(charset, maxLineLength, delimiter), mapper))
+            .doOnNext(new Consumer<T>() {
+              @Override public void accept(T line) {
+                metrics.onFrameRead();
+              }
+            });
+      }
+    });
+  }
+
+  private Flowable<byte[]> frames(FrameDecoder decoder) {
+    if (decoder == null) {
+      throw new InvalidParameterException("Frame decoder can't be null");
+    }
+
+    return chunkStream(DEFAULT_CHUNK_SIZE).lift(new FrameOperator<>(decoder, FrameOperator.COPY))
+        .doOnNext(new Consumer<byte[]>() {
+          @Override public void accept(byte[] frame) {
+            metrics.onFrameRead();
           }
+        })
+        .publish(1)
+        .refCount();
+  }
 
-          /** Returns true if list of received delimiter(s) matched the provided one(s).*/
-          private boolean delimitersMatched() {
-            int[] array = new int[receivedDelimiters.size()];
-            for (int i = 0; i < receivedDelimiters.size(); i++) {
-              array[i] = receivedDelimiters.get(i);
-            }
+  private <T> Flowable<T> bounded(final Flowable<T> source, final int capacity,
+      final BackpressureOverflowStrategy strategy) {
+    if (capacity <= 0) {
+      throw new InvalidParameterException("Capacity should be positive");
+    }
+    if (strategy == null) {
+      throw new InvalidParameterException("Overflow strategy can't be null");
+    }
 
-            return Arrays.equals(array, delimiter);
+    return Flowable.defer(new Callable<Publisher<T>>() {
+      @Override public Publisher<T> call() {
+        // Items of this subscriber held in the buffer, returned to the metrics once it's gone.
+        final AtomicLong buffered = new AtomicLong();
+        return source.doOnNext(new Consumer<T>() {
+          @Override public void accept(T item) {
+            buffered.incrementAndGet();
+            metrics.onBuffered(1);
+          }
+        }).onBackpressureBuffer(capacity, new Action() {
+          @Override public void run() {
+            buffered.decrementAndGet();
+            metrics.onBuffered(-1);
+            metrics.onDropped();
+          }
+        }, strategy).doOnNext(new Consumer<T>() {
+          @Override public void accept(T item) {
+            buffered.decrementAndGet();
+            metrics.onBuffered(-1);
+          }
+        }).doFinally(new Action() {
+          @Override public void run() {
+            metrics.onBuffered(-buffered.getAndSet(0));
           }
-        };
+        });
       }
-    }).onBackpressureBuffer();
+    });
+  }
+
+  private <T> Flowable<T> deliver(Flowable<T> source) {
+    return deliveryScheduler != null ? source.observeOn(deliveryScheduler) : source;
+  }
+
+  private synchronized Scheduler readerScheduler() {
+    if (readerScheduler != null) {
+      return readerScheduler;
+    }
+
+    // Reader thread is stopped once the connection is closed. Subscriber racing with the close gets
+    // a new one, which its failing read stops again.
+    if (readerExecutor == null || readerExecutor.isShutdown()) {
+      readerExecutor =
+          Executors.newSingleThreadExecutor(new NamedThreadFactory(READER_THREAD_NAME));
+    }
+    return Schedulers.from(readerExecutor);
   }
 
   /**
@@ -212,18 +727,75 @@ public final class BluetoothConnection {
     if (!connected) return false;
 
     try {
-      outputStream.write(bytes);
-      outputStream.flush();
+      write(bytes, 0, bytes.length, 1);
+      return true;
+    } catch (IOException e) {
+      Log.e(TAG, "Fail to send data");
+      return false;
+    }
+  }
+
+  /**
+   * Send part of array of bytes to bluetooth output stream.
+   *
+   * @param bytes array holding data to send
+   * @param offset offset of the data in {@code bytes}
+   * @param length amount of bytes to send
+   * @return true if success, false if there was error occurred or disconnected
+   */
+  public boolean send(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > bytes.length - length) {
+      throw new InvalidParameterException("Offset and length should be within the array");
+    }
+    if (!connected) return false;
+
+    try {
+      write(bytes, offset, length, 1);
+      return true;
+    } catch (IOException e) {
+      Log.e(TAG, "Fail to send data");
+      return false;
+    }
+  }
+
+  /**
+   * Send several arrays of bytes to bluetooth output stream as one payload, e.g. header, body and
+   * checksum of a frame, without concatenating them. Parts are written under one lock, so writes
+   * of other threads can't come in between, and flushed once.
+   *
+   * @param parts data to send, in order
+   * @return true if success, false if there was error occurred or disconnected
+   */
+  public boolean send(byte[]... parts) {
+    if (!connected) return false;
+
+    try {
+      write(parts);
+      return true;
+    } catch (IOException e) {
+      Log.e(TAG, "Fail to send data");
+      return false;
+    }
+  }
+
+  /**
+   * Send remaining bytes of several buffers to bluetooth output stream as one payload. Parts are
+   * written under one lock and flushed once, positions of the buffers are advanced past the bytes
+   * written. Bytes of heap buffers are written from their arrays, bytes of direct buffers are
+   * copied through a small array reused by the connection, since streams accept only arrays.
+   *
+   * @param buffers data to send, in order
+   * @return true if success, false if there was error occurred or disconnected
+   */
+  public boolean send(ByteBuffer... buffers) {
+    if (!connected) return false;
+
+    try {
+      write(buffers);
       return true;
     } catch (IOException e) {
-      // Error occurred. Better to close terminate the connection
-      connected = false;
       Log.e(TAG, "Fail to send data");
       return false;
-    } finally {
-      if (!connected) {
-        closeConnection();
-      }
     }
   }
 
@@ -238,13 +810,221 @@ public final class BluetoothConnection {
     return send(sBytes);
   }
 
+  /**
+   * Queue array of bytes to be sent to bluetooth output stream by the writer thread of this
+   * connection. Payloads queued together are coalesced and flushed at once, see {@link
+   * #setWriteBatching(int, long, TimeUnit)}. Payload is queued on subscription, so calls should
+   * be subscribed in the order they are expected to be sent.
+   *
+   * @param bytes data to send, shouldn't be modified until sent
+   * @return Completable which completes once the data is flushed, or notifies observers with
+   * {@link ConnectionClosedException} via {@code onError()}
+   */
+  public Completable sendAsync(final byte[] bytes) {
+    return Completable.create(new CompletableOnSubscribe() {
+      @Override public void subscribe(CompletableEmitter emitter) {
+        if (!connected) {
+          emitter.onError(connectionClosed());
+          return;
+        }
+        writeQueue().enqueue(bytes, emitter);
+      }
+    });
+  }
+
+  /**
+   * Queue string of text to be sent to bluetooth output stream by the writer thread of this
+   * connection.
+   *
+   * @param text text to send
+   * @return Completable which completes once the text is flushed
+   * @see #sendAsync(byte[])
+   */
+  public Completable sendAsync(String text) {
+    return sendAsync(text.getBytes());
+  }
+
+  /**
+   * Configures coalescing of payloads queued by {@link #sendAsync(byte[])}. By default payloads
+   * which are already queued are written together, up to {@value #DEFAULT_BATCH_SIZE} bytes.
+   *
+   * @param maxBatchSize maximum amount of bytes written and flushed at once. Larger payloads are
+   * written on their own.
+   * @param maxDelay maximum time to wait for more payloads before writing a batch, zero to write
+   * immediately
+   * @param unit time unit of {@code maxDelay}
+   */
+  public synchronized void setWriteBatching(int maxBatchSize, long maxDelay, TimeUnit unit) {
+    if (maxBatchSize <= 0) {
+      throw new InvalidParameterException("Batch size should be positive");
+    }
+    if (maxDelay < 0) {
+      throw new InvalidParameterException("Delay can't be negative");
+    }
+
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchDelayNanos = unit.toNanos(maxDelay);
+    if (writeQueue != null) {
+      writeQueue.configure(maxBatchSize, maxDelay, unit);
+    }
+  }
+
+  private synchronized WriteQueue writeQueue() {
+    if (writeQueue == null) {
+      writeQueue = new WriteQueue(this, maxBatchSize, maxBatchDelayNanos, TimeUnit.NANOSECONDS);
+    }
+    return writeQueue;
+  }
+
+  /**
+   * Writes and flushes bytes of {@code frames} payloads under the write lock. Closes the
+   * connection on failure.
+   */
+  void write(byte[] bytes, int offset, int length, int frames) throws IOException {
+    try {
+      synchronized (writeLock) {
+        long start = System.nanoTime();
+        outputStream.write(bytes, offset, length);
+        outputStream.flush();
+        metrics.onWrite(length, frames, System.nanoTime() - start);
+      }
+    } catch (IOException e) {
+      onWriteError();
+      throw e;
+    }
+  }
+
+  private void write(byte[][] parts) throws IOException {
+    try {
+      synchronized (writeLock) {
+        long start = System.nanoTime();
+        int length = 0;
+        for (byte[] part : parts) {
+          outputStream.write(part);
+          length += part.length;
+        }
+        outputStream.flush();
+        metrics.onWrite(length, 1, System.nanoTime() - start);
+      }
+    } catch (IOException e) {
+      onWriteError();
+      throw e;
+    }
+  }
+
+  private void write(ByteBuffer[] buffers) throws IOException {
+    try {
+      synchronized (writeLock) {
+        long start = System.nanoTime();
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+          length += buffer.remaining();
+          if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                buffer.remaining());
+            buffer.position(buffer.limit());
+          } else {
+            if (writeBuffer == null) {
+              writeBuffer = new byte[WRITE_BUFFER_SIZE];
+            }
+            while (buffer.hasRemaining()) {
+              int chunk = Math.min(buffer.remaining(), writeBuffer.length);
+              buffer.get(writeBuffer, 0, chunk);
+              outputStream.write(writeBuffer, 0, chunk);
+            }
+          }
+        }
+        outputStream.flush();
+        metrics.onWrite(length, 1, System.nanoTime() - start);
+      }
+    } catch (IOException e) {
+      onWriteError();
+      throw e;
+    }
+  }
+
+  private void onWriteError() {
+    if (connected) {
+      metrics.onWriteError();
+    }
+    // Error occurred. Better to close terminate the connection
+    closeConnection();
+  }
+
+  /**
+   * Returns current counters of the connection: traffic, read sizes, write latencies, buffered and
+   * queued data and time connected.
+   *
+   * @return snapshot of the counters
+   */
+  public ConnectionStats getStats() {
+    WriteQueue writeQueue = this.writeQueue;
+    return metrics.snapshot(writeQueue != null ? writeQueue.size() : 0);
+  }
+
+  /**
+   * Observes counters of the connection, e.g. to find slow links and overloaded subscribers.
+   *
+   * @param period time between snapshots
+   * @param unit time unit of {@code period}
+   * @return RxJava Observable with {@link ConnectionStats}, emitted on the computation scheduler.
+   * Snapshots which subscriber isn't ready for are dropped.
+   * @see #getStats()
+   */
+  public Flowable<ConnectionStats> observeStats(long period, TimeUnit unit) {
+    return Flowable.interval(period, unit).onBackpressureDrop().map(
+        new Function<Long, ConnectionStats>() {
+          @Override public ConnectionStats apply(Long tick) {
+            return getStats();
+          }
+        });
+  }
+
+  /**
+   * Return true if connection is open, false if it was closed or failed to read or write.
+   *
+   * @return true if connected
+   */
+  public boolean isConnected() {
+    return connected;
+  }
+
   /**
    * Close the streams and socket connection.
    */
   public void closeConnection() {
     connected = false;
+    metrics.onDisconnected();
+    WriteQueue writeQueue = this.writeQueue;
+    if (writeQueue != null) {
+      writeQueue.close();
+    }
     Utils.close(inputStream);
     Utils.close(outputStream);
-    Utils.close(socket);
+    Utils.close(transport);
+
+    synchronized (this) {
+      if (readerExecutor != null) {
+        readerExecutor.shutdown();
+      }
+    }
+    runOnClose();
+  }
+
+  /**
+   * Sets action run once the connection is closed, or right away if it's closed already.
+   */
+  void setOnClose(Runnable action) {
+    onClose.set(action);
+    if (!connected) {
+      runOnClose();
+    }
+  }
+
+  private void runOnClose() {
+    Runnable action = onClose.getAndSet(null);
+    if (action != null) {
+      action.run();
+    }
   }
 }
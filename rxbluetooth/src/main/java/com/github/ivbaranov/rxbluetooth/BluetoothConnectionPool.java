@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import androidx.annotation.Nullable;
+import com.github.ivbaranov.rxbluetooth.decoders.FrameDecoder;
+import com.github.ivbaranov.rxbluetooth.exceptions.ConnectionClosedException;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.reactivestreams.Publisher;
+
+/**
+ * Keeps client connections to many devices at once.
+ *
+ * <p>Connections are reused per device and service UUID. Connecting is done by a bounded pool of
+ * threads, so only a limited amount of devices is connected at the same time, the rest wait in
+ * the queue. Amount of open connections is limited too, connects above the limit wait until a
+ * connection is closed. All connections read on a shared reader scheduler with a thread per open
+ * connection, idle threads are stopped after a minute, and their inbound data is merged into one
+ * stream of {@link DeviceFrame}.
+ */
+public final class BluetoothConnectionPool {
+
+  private static final class PooledConnection {
+    final BluetoothDevice device;
+    final UUID uuid;
+    final BluetoothConnection connection;
+
+    PooledConnection(BluetoothDevice device, UUID uuid, BluetoothConnection connection) {
+      this.device = device;
+      this.uuid = uuid;
+      this.connection = connection;
+    }
+  }
+
+  /**
+   * Connection attempt to a device and service UUID, started by the first subscriber. Attempt
+   * holds a slot of the pool from the start of the connect until it fails or the connection is
+   * closed, or waits for one. Closing it aborts the connect, or closes the connection if it is
+   * already established.
+   */
+  private final class Attempt {
+    final String key;
+    final BluetoothDevice device;
+    final UUID uuid;
+    private final SingleSubject<PooledConnection> result = SingleSubject.create();
+    private Disposable connecting;
+    private boolean queued;
+    private boolean closed;
+    // Guarded by the pool lock.
+    private boolean holdsSlot;
+
+    Attempt(String key, BluetoothDevice device, UUID uuid) {
+      this.key = key;
+      this.device = device;
+      this.uuid = uuid;
+    }
+
+    Single<PooledConnection> get() {
+      return Single.defer(new Callable<SingleSource<PooledConnection>>() {
+        @Override public SingleSource<PooledConnection> call() {
+          start();
+          return result;
+        }
+      });
+    }
+
+    private synchronized void start() {
+      if (connecting != null || queued || closed) return;
+
+      synchronized (lock) {
+        if (!holdsSlot && slots == maxConnections) {
+          queued = true;
+          waiting.add(this);
+          return;
+        }
+        if (!holdsSlot) {
+          holdsSlot = true;
+          slots++;
+        }
+        connectLocked();
+      }
+    }
+
+    /**
+     * Starts the connect after the slot was handed over by a closed connection.
+     */
+    private synchronized void dequeued() {
+      queued = false;
+      if (closed) {
+        release();
+        return;
+      }
+
+      synchronized (lock) {
+        connectLocked();
+      }
+    }
+
+    private void connectLocked() {
+      if (BluetoothConnectionPool.this.closed) {
+        // Nobody is waiting for the slot anymore, as the pool closes all attempts.
+        closed = true;
+        connections.remove(key, this);
+        holdsSlot = false;
+        slots--;
+        result.onError(poolClosed());
+        return;
+      }
+      // Scheduled under the lock, so that the pool can't shut the executor down before.
+      connecting = rxBluetooth.connectAsClient(device, uuid)
+          .subscribeOn(connectScheduler)
+          .subscribe(new Consumer<BluetoothSocket>() {
+            @Override public void accept(BluetoothSocket socket) {
+              onConnected(socket);
+            }
+          }, new Consumer<Throwable>() {
+            @Override public void accept(Throwable error) {
+              onFailed(error);
+            }
+          });
+    }
+
+    /**
+     * Frees the slot of this attempt, handing it over to the longest waiting one.
+     */
+    private void release() {
+      Attempt next;
+      synchronized (lock) {
+        if (!holdsSlot) return;
+
+        holdsSlot = false;
+        next = waiting.poll();
+        if (next != null) {
+          next.holdsSlot = true;
+        } else {
+          slots--;
+        }
+      }
+
+      if (next != null) {
+        next.dequeued();
+      }
+    }
+
+    private synchronized void onConnected(BluetoothSocket socket) {
+      if (closed) {
+        closeQuietly(socket);
+        return;
+      }
+
+      final PooledConnection pooled;
+      try {
+        pooled = new PooledConnection(device, uuid,
+            new BluetoothConnection(socket, readerScheduler, null));
+      } catch (Exception e) {
+        closeQuietly(socket);
+        onFailed(e);
+        return;
+      }
+      active.add(pooled);
+      pooled.connection.setOnClose(new Runnable() {
+        @Override public void run() {
+          active.remove(pooled);
+          release();
+        }
+      });
+      added.onNext(pooled);
+      result.onSuccess(pooled);
+    }
+
+    private synchronized void onFailed(Throwable error) {
+      // Let the next call try again.
+      connections.remove(key, this);
+      release();
+      if (!closed) {
+        closed = true;
+        result.onError(error);
+      }
+    }
+
+    synchronized void close() {
+      if (closed && !result.hasValue()) return;
+
+      closed = true;
+      if (connecting != null) {
+        connecting.dispose();
+      }
+      if (result.hasValue()) {
+        // Frees the slot once closed.
+        result.getValue().connection.closeConnection();
+      } else {
+        synchronized (lock) {
+          if (queued) {
+            queued = false;
+            waiting.remove(this);
+          }
+        }
+        release();
+        result.onError(new ConnectionClosedException("Connection closed by the pool", null));
+      }
+    }
+  }
+
+  private final RxBluetooth rxBluetooth;
+  private final Callable<? extends FrameDecoder> decoderFactory;
+  private final ExecutorService connectExecutor;
+  private final Scheduler connectScheduler;
+  private final ExecutorService readerExecutor;
+  private final Scheduler readerScheduler;
+
+  private final int maxConnections;
+
+  private final Object lock = new Object();
+  private boolean closed;
+  private int slots;
+  private final Queue<Attempt> waiting = new ArrayDeque<>();
+
+  private final ConcurrentMap<String, Attempt> connections = new ConcurrentHashMap<>();
+  private final List<PooledConnection> active = new CopyOnWriteArrayList<>();
+  private final FlowableProcessor<PooledConnection> added =
+      PublishProcessor.<PooledConnection>create().toSerialized();
+
+  /**
+   * Creates pool, which emits data as chunks of bytes.
+   *
+   * @param rxBluetooth RxBluetooth used to connect
+   * @param maxConcurrentConnects maximum amount of devices connected at the same time
+   * @param maxConnections maximum amount of open connections, including the ones being connected
+   */
+  public BluetoothConnectionPool(RxBluetooth rxBluetooth, int maxConcurrentConnects,
+      int maxConnections) {
+    this(rxBluetooth, maxConcurrentConnects, maxConnections, null);
+  }
+
+  /**
+   * @param rxBluetooth RxBluetooth used to connect
+   * @param maxConcurrentConnects maximum amount of devices connected at the same time
+   * @param maxConnections maximum amount of open connections, including the ones being connected
+   * @param decoderFactory creates decoder per connection to emit data as frames. If null, data is
+   * emitted as chunks of bytes.
+   */
+  public BluetoothConnectionPool(RxBluetooth rxBluetooth, int maxConcurrentConnects,
+      int maxConnections, @Nullable Callable<? extends FrameDecoder> decoderFactory) {
+    if (rxBluetooth == null) {
+      throw new InvalidParameterException("RxBluetooth can't be null");
+    }
+    if (maxConcurrentConnects <= 0) {
+      throw new InvalidParameterException("Amount of concurrent connects should be positive");
+    }
+    if (maxConnections <= 0) {
+      throw new InvalidParameterException("Amount of connections should be positive");
+    }
+
+    this.rxBluetooth = rxBluetooth;
+    this.maxConnections = maxConnections;
+    this.decoderFactory = decoderFactory;
+    this.connectExecutor = Executors.newFixedThreadPool(maxConcurrentConnects,
+        new NamedThreadFactory("RxBluetooth-Connect"));
+    this.connectScheduler = Schedulers.from(connectExecutor);
+    this.readerExecutor = BluetoothConnection.newReaderExecutor(maxConnections);
+    this.readerScheduler = Schedulers.from(readerExecutor);
+  }
+
+  /**
+   * Returns open connection to the device and service UUID, or connects to it. Concurrent calls
+   * for the same device and UUID share one connection attempt. If the pool has as many connections
+   * as allowed, connect waits until one of them is closed.
+   *
+   * @param bluetoothDevice bluetooth device to connect
+   * @param uuid uuid for SDP record
+   * @return Single with connection, notifies observers with {@link java.io.IOException} via
+   * {@code onError()} if connection failed, or {@link ConnectionClosedException} if the pool or
+   * the connection is closed
+   */
+  public Single<BluetoothConnection> connect(final BluetoothDevice bluetoothDevice,
+      final UUID uuid) {
+    synchronized (lock) {
+      if (closed) {
+        return Single.error(poolClosed());
+      }
+    }
+
+    final String key = key(bluetoothDevice, uuid);
+
+    Attempt attempt = connections.get(key);
+    if (attempt == null) {
+      Attempt created = new Attempt(key, bluetoothDevice, uuid);
+      attempt = connections.putIfAbsent(key, created);
+      if (attempt == null) {
+        attempt = created;
+      }
+    }
+
+    final Attempt existing = attempt;
+    Single<PooledConnection> pooled = existing.get();
+    return pooled.flatMap(new Function<PooledConnection, SingleSource<BluetoothConnection>>() {
+      @Override public SingleSource<BluetoothConnection> apply(PooledConnection pooled) {
+        if (pooled.connection.isConnected()) {
+          return Single.just(pooled.connection);
+        }
+
+        // Connection was closed since, replace it.
+        active.remove(pooled);
+        connections.remove(key, existing);
+        return connect(bluetoothDevice, uuid);
+      }
+    });
+  }
+
+  /**
+   * Closes connection to the device and service UUID, if any. Pending connect is aborted.
+   *
+   * @param bluetoothDevice bluetooth device
+   * @param uuid uuid for SDP record
+   */
+  public void disconnect(BluetoothDevice bluetoothDevice, UUID uuid) {
+    Attempt attempt = connections.remove(key(bluetoothDevice, uuid));
+    if (attempt != null) {
+      attempt.close();
+    }
+  }
+
+  /**
+   * Observes data of all connections of this pool, including those connected after subscription.
+   * Streams of closed connections are completed silently.
+   *
+   * @return RxJava Observable with {@link DeviceFrame}
+   */
+  public Flowable<DeviceFrame> observeFrames() {
+    Flowable<PooledConnection> current =
+        Flowable.defer(new Callable<Publisher<PooledConnection>>() {
+          @Override public Publisher<PooledConnection> call() {
+            return Flowable.fromIterable(new ArrayList<>(active));
+          }
+        });
+
+    // Subscribe to new connections first, so none is missed, and drop the ones seen twice.
+    return Flowable.merge(added.onBackpressureBuffer(), current)
+        .distinct()
+        .flatMap(new Function<PooledConnection, Publisher<DeviceFrame>>() {
+          @Override public Publisher<DeviceFrame> apply(final PooledConnection pooled) {
+            return data(pooled).map(new Function<byte[], DeviceFrame>() {
+              @Override public DeviceFrame apply(byte[] data) {
+                return new DeviceFrame(pooled.device, pooled.uuid, data);
+              }
+            }).doOnError(new Consumer<Throwable>() {
+              @Override public void accept(Throwable throwable) {
+                active.remove(pooled);
+              }
+            }).onErrorResumeNext(Flowable.<DeviceFrame>empty());
+          }
+        }, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns amount of open connections.
+   *
+   * @return amount of open connections
+   */
+  public int getConnectionCount() {
+    int count = 0;
+    for (PooledConnection pooled : active) {
+      if (pooled.connection.isConnected()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Closes all connections, aborts pending connects and stops the threads of the pool. Further
+   * connects fail with {@link ConnectionClosedException}.
+   */
+  public void close() {
+    synchronized (lock) {
+      if (closed) return;
+      closed = true;
+    }
+
+    for (String key : connections.keySet()) {
+      Attempt attempt = connections.remove(key);
+      if (attempt != null) {
+        attempt.close();
+      }
+    }
+    synchronized (lock) {
+      waiting.clear();
+    }
+    connectExecutor.shutdownNow();
+    readerExecutor.shutdown();
+  }
+
+  private Flowable<byte[]> data(final PooledConnection pooled) {
+    if (decoderFactory == null) {
+      return pooled.connection.observeChunkStream();
+    }
+
+    return Flowable.defer(new Callable<Publisher<byte[]>>() {
+      @Override public Publisher<byte[]> call() throws Exception {
+        return pooled.connection.observeFrames(decoderFactory.call());
+      }
+    });
+  }
+
+  private static ConnectionClosedException poolClosed() {
+    return new ConnectionClosedException("Connection pool closed", null);
+  }
+
+  private static void closeQuietly(BluetoothSocket socket) {
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+      // Nothing to do.
+    }
+  }
+
+  private static String key(BluetoothDevice bluetoothDevice, UUID uuid) {
+    return bluetoothDevice.getAddress() + '/' + uuid;
+  }
+}
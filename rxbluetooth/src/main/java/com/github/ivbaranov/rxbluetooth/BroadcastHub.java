@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import androidx.annotation.Nullable;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.annotations.NonNull;
+import io.reactivex.functions.Cancellable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shares broadcast receivers between subscribers. There is at most one receiver registered per
+ * set of actions: it's registered by the first subscriber and unregistered once the last one is
+ * disposed. Intents are fanned out to subscribers without locking, on the thread of {@code
+ * handler} or on the main thread if there is none.
+ */
+final class BroadcastHub {
+
+  private final class Entry extends BroadcastReceiver {
+    final String key;
+    final List<ObservableEmitter<Intent>> subscribers = new CopyOnWriteArrayList<>();
+
+    Entry(String key) {
+      this.key = key;
+    }
+
+    @Override public void onReceive(Context context, Intent intent) {
+      for (ObservableEmitter<Intent> subscriber : subscribers) {
+        subscriber.onNext(intent);
+      }
+    }
+  }
+
+  private final Context context;
+  private final Handler handler;
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  BroadcastHub(Context context, @Nullable Handler handler) {
+    this.context = context;
+    this.handler = handler;
+  }
+
+  /**
+   * Observes intents broadcast with any of {@code actions}.
+   */
+  Observable<Intent> observe(final String... actions) {
+    final String key = key(actions);
+    return Observable.create(new ObservableOnSubscribe<Intent>() {
+      @Override public void subscribe(@NonNull final ObservableEmitter<Intent> emitter) {
+        final Entry entry = add(key, actions, emitter);
+
+        // Receivers can be unregistered from any thread, no need to hop to the main thread.
+        emitter.setCancellable(new Cancellable() {
+          @Override public void cancel() {
+            remove(entry, emitter);
+          }
+        });
+      }
+    });
+  }
+
+  private synchronized Entry add(String key, String[] actions, ObservableEmitter<Intent> emitter) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      entry = new Entry(key);
+      entry.subscribers.add(emitter);
+      entries.put(key, entry);
+
+      IntentFilter filter = new IntentFilter();
+      for (String action : actions) {
+        filter.addAction(action);
+      }
+      context.registerReceiver(entry, filter, null, handler);
+    } else {
+      entry.subscribers.add(emitter);
+    }
+    return entry;
+  }
+
+  private synchronized void remove(Entry entry, ObservableEmitter<Intent> emitter) {
+    if (entry.subscribers.remove(emitter) && entry.subscribers.isEmpty()) {
+      entries.remove(entry.key);
+      context.unregisterReceiver(entry);
+    }
+  }
+
+  private static String key(String[] actions) {
+    String[] sorted = actions.clone();
+    Arrays.sort(sorted);
+    return Arrays.toString(sorted);
+  }
+}
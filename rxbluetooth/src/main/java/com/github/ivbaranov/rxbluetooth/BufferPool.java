@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of reusable {@link ByteBuffer}s for {@link
+ * BluetoothConnection#observeBufferStream(BufferPool)}. A buffer is taken from the pool for
+ * every read and returned when the subscriber calls {@link PooledBuffer#release()}. When the pool
+ * is empty a new buffer is allocated, when it is full a released buffer is left to the garbage
+ * collector, so the pool never holds more than {@code maxPooled} buffers.
+ *
+ * <p>Pool can be shared by several connections.
+ */
+public final class BufferPool {
+
+  private final int bufferSize;
+  private final boolean direct;
+  private final BlockingQueue<PooledBuffer> pool;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates pool of heap buffers.
+   *
+   * @param bufferSize capacity of every buffer, also maximum amount of bytes read at once
+   * @param maxPooled maximum amount of buffers kept in the pool
+   */
+  public BufferPool(int bufferSize, int maxPooled) {
+    this(bufferSize, maxPooled, false);
+  }
+
+  /**
+   * Creates pool of buffers. Direct buffers are filled with one extra copy on read, since
+   * {@link java.io.InputStream} can only read into an array, but can be handed to NIO channels
+   * without another one.
+   *
+   * @param bufferSize capacity of every buffer, also maximum amount of bytes read at once
+   * @param maxPooled maximum amount of buffers kept in the pool
+   * @param direct whether to allocate direct buffers
+   */
+  public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+    if (bufferSize <= 0) {
+      throw new InvalidParameterException("Buffer size should be positive");
+    }
+    if (maxPooled <= 0) {
+      throw new InvalidParameterException("Pool size should be positive");
+    }
+
+    this.bufferSize = bufferSize;
+    this.direct = direct;
+    this.pool = new ArrayBlockingQueue<>(maxPooled);
+  }
+
+  /**
+   * @return capacity of every buffer of the pool
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return whether the pool allocates direct buffers
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * @return amount of reads served by a pooled buffer
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return amount of reads which had to allocate a new buffer
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return amount of released buffers currently waiting in the pool
+   */
+  public int getPooledCount() {
+    return pool.size();
+  }
+
+  PooledBuffer acquire() {
+    PooledBuffer buffer = pool.poll();
+    if (buffer != null) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+      buffer = new PooledBuffer(this, direct ? ByteBuffer.allocateDirect(bufferSize)
+          : ByteBuffer.allocate(bufferSize));
+    }
+    buffer.acquired();
+    return buffer;
+  }
+
+  void recycle(PooledBuffer buffer) {
+    pool.offer(buffer);
+  }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import androidx.annotation.Nullable;
+import com.github.ivbaranov.rxbluetooth.exceptions.ConnectionClosedException;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.InvalidParameterException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32;
+import org.reactivestreams.Publisher;
+
+/**
+ * Sends and receives large amounts of data, e.g. firmware images or log files, over a {@link
+ * BluetoothConnection} without holding them in memory. Data is streamed in chunks of {@link
+ * TransferOptions#getChunkSize()} bytes and progress is emitted after every chunk. Progress
+ * snapshots which subscriber isn't ready for are dropped, the latest one is kept.
+ *
+ * <p>With an ack window, sender waits once that many chunks are not acknowledged yet. Protocol of
+ * acknowledgements is up to the application: every item of the {@code acks} stream passed to
+ * {@code send()} acknowledges one chunk, and {@link #receive(FileChannel, long, byte[])} can send
+ * a fixed reply after every chunk.
+ *
+ * <pre>{@code
+ * // Receiver replies with one byte after every chunk, sender keeps up to 4 chunks in flight
+ * BulkTransfer transfer = new BulkTransfer(connection, new TransferOptions(4096, true, 4));
+ * transfer.send(new FileInputStream(image).getChannel(), connection.observeByteStream())
+ *     .subscribe(...);
+ *
+ * // On the other side
+ * new BulkTransfer(connection, new TransferOptions(4096, true, 4))
+ *     .receive(new FileOutputStream(file).getChannel(), length, new byte[] { 0x06 })
+ *     .subscribe(...);
+ * }</pre>
+ */
+public final class BulkTransfer {
+
+  private final BluetoothConnection connection;
+  private final TransferOptions options;
+
+  /**
+   * Creates transfer with {@link TransferOptions#DEFAULT} options.
+   *
+   * @param connection connection to transfer data over
+   */
+  public BulkTransfer(BluetoothConnection connection) {
+    this(connection, TransferOptions.DEFAULT);
+  }
+
+  /**
+   * @param connection connection to transfer data over
+   * @param options chunk size, checksum and ack window of transfers
+   */
+  public BulkTransfer(BluetoothConnection connection, TransferOptions options) {
+    if (connection == null) {
+      throw new InvalidParameterException("Connection can't be null");
+    }
+    if (options == null) {
+      throw new InvalidParameterException("Options can't be null");
+    }
+
+    this.connection = connection;
+    this.options = options;
+  }
+
+  /**
+   * Sends {@code length} bytes of {@code input}, see {@link #send(InputStream, long, Publisher)}.
+   *
+   * @param input stream to send
+   * @param length amount of bytes to send, or {@link TransferProgress#UNKNOWN_LENGTH} to send
+   * until the end of the stream
+   * @return RxJava Observable with {@link TransferProgress}
+   */
+  public Flowable<TransferProgress> send(InputStream input, long length) {
+    return send(input, length, null);
+  }
+
+  /**
+   * Sends {@code length} bytes of {@code input} on the io scheduler. Stream isn't closed.
+   *
+   * @param input stream to send
+   * @param length amount of bytes to send, or {@link TransferProgress#UNKNOWN_LENGTH} to send
+   * until the end of the stream
+   * @param acks acknowledgements of the receiver, one item per chunk. Required if ack window is
+   * set, ignored otherwise.
+   * @return RxJava Observable with {@link TransferProgress}, or notifies observers with {@link
+   * EOFException} if the stream ends early, {@link ConnectionClosedException} if the connection
+   * closes or an error of {@code acks}
+   */
+  public Flowable<TransferProgress> send(final InputStream input, final long length,
+      @Nullable Publisher<?> acks) {
+    if (input == null) {
+      throw new InvalidParameterException("Input stream can't be null");
+    }
+    if (length < 0 && length != TransferProgress.UNKNOWN_LENGTH) {
+      throw new InvalidParameterException("Length can't be negative");
+    }
+
+    return send(new Source() {
+      @Override long length() {
+        return length;
+      }
+
+      @Override int read(byte[] buffer, int offset, int length) throws IOException {
+        return input.read(buffer, offset, length);
+      }
+    }, acks);
+  }
+
+  /**
+   * Sends {@code channel} from its current position to the end, see {@link #send(FileChannel,
+   * Publisher)}.
+   *
+   * @param channel file to send
+   * @return RxJava Observable with {@link TransferProgress}
+   */
+  public Flowable<TransferProgress> send(FileChannel channel) {
+    return send(channel, null);
+  }
+
+  /**
+   * Sends {@code channel} from its current position to the end on the io scheduler. Channel
+   * isn't closed.
+   *
+   * @param channel file to send
+   * @param acks acknowledgements of the receiver, one item per chunk. Required if ack window is
+   * set, ignored otherwise.
+   * @return RxJava Observable with {@link TransferProgress}
+   * @see #send(InputStream, long, Publisher)
+   */
+  public Flowable<TransferProgress> send(final FileChannel channel, @Nullable Publisher<?> acks) {
+    if (channel == null) {
+      throw new InvalidParameterException("Channel can't be null");
+    }
+
+    return send(new Source() {
+      private ByteBuffer wrapped;
+
+      @Override long length() throws IOException {
+        return channel.size() - channel.position();
+      }
+
+      @Override int read(byte[] buffer, int offset, int length) throws IOException {
+        if (wrapped == null || wrapped.array() != buffer) {
+          wrapped = ByteBuffer.wrap(buffer);
+        }
+        wrapped.limit(offset + length).position(offset);
+        return channel.read(wrapped);
+      }
+    }, acks);
+  }
+
+  /**
+   * Receives {@code length} bytes from the connection and writes them to {@code channel} at its
+   * current position. Data is read by the chunk stream of the connection, bytes following the
+   * transfer in the same read are dropped, so the sender shouldn't send anything else before the
+   * transfer is acknowledged. Channel isn't closed.
+   *
+   * @param channel file to write to
+   * @param length amount of bytes to receive
+   * @param ack reply sent after every chunk written, or null to send nothing
+   * @return RxJava Observable with {@link TransferProgress}, emitted on the thread the connection
+   * emits data on
+   */
+  public Flowable<TransferProgress> receive(final FileChannel channel, final long length,
+      @Nullable final byte[] ack) {
+    if (channel == null) {
+      throw new InvalidParameterException("Channel can't be null");
+    }
+    if (length < 0) {
+      throw new InvalidParameterException("Length can't be negative");
+    }
+
+    return Flowable.create(new FlowableOnSubscribe<TransferProgress>() {
+      @Override public void subscribe(final FlowableEmitter<TransferProgress> emitter) {
+        if (length == 0) {
+          CRC32 crc = options.isChecksum() ? new CRC32() : null;
+          emitter.onNext(new TransferProgress(0, 0, 0, checksum(crc), true));
+          emitter.onComplete();
+          return;
+        }
+
+        final Receiver receiver = new Receiver(channel, length, ack, emitter);
+        emitter.setDisposable(connection.observeChunkStream().subscribe(receiver,
+            new Consumer<Throwable>() {
+              @Override public void accept(Throwable error) {
+                emitter.tryOnError(error);
+              }
+            }));
+      }
+    }, BackpressureStrategy.LATEST);
+  }
+
+  private Flowable<TransferProgress> send(final Source source,
+      @Nullable final Publisher<?> acks) {
+    final int ackWindow = options.getAckWindow();
+    if (ackWindow > 0 && acks == null) {
+      throw new InvalidParameterException("Acks can't be null with an ack window");
+    }
+
+    return Flowable.create(new FlowableOnSubscribe<TransferProgress>() {
+      @Override public void subscribe(final FlowableEmitter<TransferProgress> emitter) {
+        final Semaphore window = ackWindow > 0 ? new Semaphore(ackWindow) : null;
+        final Disposable ackSubscription = window == null ? null
+            : Flowable.fromPublisher(acks).subscribe(new Consumer<Object>() {
+              @Override public void accept(Object ack) {
+                window.release();
+              }
+            }, new Consumer<Throwable>() {
+              @Override public void accept(Throwable error) {
+                emitter.tryOnError(error);
+                window.release(ackWindow);
+              }
+            });
+        emitter.setCancellable(new Cancellable() {
+          @Override public void cancel() {
+            if (window != null) {
+              ackSubscription.dispose();
+              // Wakes up the sender waiting for acks, it stops as the emitter is cancelled.
+              window.release(ackWindow);
+            }
+          }
+        });
+
+        try {
+          sendChunks(source, window, emitter);
+        } catch (Exception e) {
+          emitter.tryOnError(e);
+        }
+      }
+    }, BackpressureStrategy.LATEST).subscribeOn(Schedulers.io());
+  }
+
+  private void sendChunks(Source source, @Nullable Semaphore window,
+      FlowableEmitter<TransferProgress> emitter) throws IOException, InterruptedException {
+    long total = source.length();
+    byte[] chunk = new byte[options.getChunkSize()];
+    CRC32 crc = options.isChecksum() ? new CRC32() : null;
+    long start = System.nanoTime();
+    long sent = 0;
+
+    for (;;) {
+      int size = chunk.length;
+      if (total != TransferProgress.UNKNOWN_LENGTH) {
+        size = (int) Math.min(size, total - sent);
+      }
+      int read = size > 0 ? fill(source, chunk, size) : 0;
+      if (read < size && total != TransferProgress.UNKNOWN_LENGTH) {
+        throw new EOFException("Source ended after " + (sent + read) + " of " + total + " bytes");
+      }
+      if (read == 0) {
+        break;
+      }
+
+      if (window != null) {
+        window.acquire();
+      }
+      if (emitter.isCancelled()) {
+        return;
+      }
+      if (!connection.isConnected()) {
+        throw new ConnectionClosedException("Connection closed", null);
+      }
+      connection.write(chunk, 0, read, 1);
+
+      if (crc != null) {
+        crc.update(chunk, 0, read);
+      }
+      sent += read;
+      boolean last = read < size || sent == total;
+      emitter.onNext(new TransferProgress(sent, total, System.nanoTime() - start, checksum(crc),
+          last));
+      if (last) {
+        emitter.onComplete();
+        return;
+      }
+    }
+
+    // Source of unknown length ended right after a full chunk, or there was nothing to send.
+    emitter.onNext(new TransferProgress(sent, total, System.nanoTime() - start, checksum(crc),
+        true));
+    emitter.onComplete();
+  }
+
+  /** Reads until {@code size} bytes are read or the source ends, so that chunks are full. */
+  private static int fill(Source source, byte[] chunk, int size) throws IOException {
+    int filled = 0;
+    while (filled < size) {
+      int read = source.read(chunk, filled, size - filled);
+      if (read < 0) {
+        break;
+      }
+      filled += read;
+    }
+    return filled;
+  }
+
+  private static long checksum(@Nullable CRC32 crc) {
+    return crc != null ? crc.getValue() : TransferProgress.NO_CHECKSUM;
+  }
+
+  private abstract static class Source {
+    abstract long length() throws IOException;
+
+    abstract int read(byte[] buffer, int offset, int length) throws IOException;
+  }
+
+  private final class Receiver implements Consumer<byte[]> {
+    private final FileChannel channel;
+    private final long length;
+    private final byte[] ack;
+    private final FlowableEmitter<TransferProgress> emitter;
+    private final CRC32 crc = options.isChecksum() ? new CRC32() : null;
+    private final long start = System.nanoTime();
+    private long received;
+
+    Receiver(FileChannel channel, long length, @Nullable byte[] ack,
+        FlowableEmitter<TransferProgress> emitter) {
+      this.channel = channel;
+      this.length = length;
+      this.ack = ack;
+      this.emitter = emitter;
+    }
+
+    @Override public void accept(byte[] chunk) throws IOException {
+      int size = (int) Math.min(chunk.length, length - received);
+      ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, size);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (crc != null) {
+        crc.update(chunk, 0, size);
+      }
+
+      long chunks = received / options.getChunkSize();
+      received += size;
+      if (ack != null) {
+        for (long i = received / options.getChunkSize(); i > chunks; i--) {
+          connection.write(ack, 0, ack.length, 1);
+        }
+      }
+
+      boolean last = received == length;
+      emitter.onNext(new TransferProgress(received, length, System.nanoTime() - start,
+          checksum(crc), last));
+      if (last) {
+        emitter.onComplete();
+      }
+    }
+  }
+}
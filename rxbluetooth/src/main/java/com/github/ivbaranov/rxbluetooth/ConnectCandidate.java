@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import androidx.annotation.Nullable;
+import java.security.InvalidParameterException;
+import java.util.UUID;
+
+/**
+ * One way to connect to a device: a service UUID, secure or insecure, or an RFCOMM channel.
+ *
+ * @see RxBluetooth#connectAsClient(android.bluetooth.BluetoothDevice, java.util.List)
+ */
+public final class ConnectCandidate {
+
+  private final UUID uuid;
+  private final int channel;
+  private final boolean secure;
+
+  private ConnectCandidate(@Nullable UUID uuid, int channel, boolean secure) {
+    this.uuid = uuid;
+    this.channel = channel;
+    this.secure = secure;
+  }
+
+  /**
+   * @param uuid uuid for SDP record
+   * @param secure connection security status
+   * @return candidate which connects to the service record
+   */
+  public static ConnectCandidate uuid(UUID uuid, boolean secure) {
+    if (uuid == null) {
+      throw new InvalidParameterException("UUID can't be null");
+    }
+
+    return new ConnectCandidate(uuid, -1, secure);
+  }
+
+  /**
+   * @param channel RFCOMM channel to connect to
+   * @return candidate which connects to the channel, see {@link
+   * RxBluetooth#connectAsClient(android.bluetooth.BluetoothDevice, int)}
+   */
+  public static ConnectCandidate channel(int channel) {
+    return channel(channel, true);
+  }
+
+  /**
+   * @param channel RFCOMM channel to connect to
+   * @param secure connection security status
+   * @return candidate which connects to the channel, see {@link
+   * RxBluetooth#connectAsClient(android.bluetooth.BluetoothDevice, int, boolean)}
+   */
+  public static ConnectCandidate channel(int channel, boolean secure) {
+    if (channel <= 0) {
+      throw new InvalidParameterException("Channel should be positive");
+    }
+
+    return new ConnectCandidate(null, channel, secure);
+  }
+
+  /**
+   * @return service UUID, or null if candidate is a channel
+   */
+  @Nullable public UUID getUuid() {
+    return uuid;
+  }
+
+  /**
+   * @return RFCOMM channel, or -1 if candidate is a service UUID
+   */
+  public int getChannel() {
+    return channel;
+  }
+
+  public boolean isSecure() {
+    return secure;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    ConnectCandidate that = (ConnectCandidate) o;
+
+    if (channel != that.channel) return false;
+    if (secure != that.secure) return false;
+    return uuid != null ? uuid.equals(that.uuid) : that.uuid == null;
+  }
+
+  @Override public int hashCode() {
+    int result = uuid != null ? uuid.hashCode() : 0;
+    result = 31 * result + channel;
+    result = 31 * result + (secure ? 1 : 0);
+    return result;
+  }
+
+  @Override public String toString() {
+    return "ConnectCandidate{" +
+        "uuid=" + uuid +
+        ", channel=" + channel +
+        ", secure=" + secure +
+        '}';
+  }
+}
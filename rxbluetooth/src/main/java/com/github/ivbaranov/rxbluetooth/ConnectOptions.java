@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.security.InvalidParameterException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How {@code connectAsClient()} methods of {@link RxBluetooth} connect.
+ *
+ * @see RxBluetooth#setConnectOptions(ConnectOptions)
+ */
+public final class ConnectOptions {
+
+  /** Connects as is: doesn't touch discovery and waits for the connect as long as it takes. */
+  public static final ConnectOptions DEFAULT = new ConnectOptions(false, 0, TimeUnit.MILLISECONDS);
+
+  private final boolean suspendDiscovery;
+  private final long timeoutMillis;
+
+  /**
+   * @param suspendDiscovery if true, discovery is cancelled while connecting, as it slows
+   * connection setup down, and restarted afterwards if it was running
+   * @param timeout time after which connect fails with {@link java.net.SocketTimeoutException},
+   * zero to wait as long as it takes
+   * @param unit time unit of {@code timeout}
+   */
+  public ConnectOptions(boolean suspendDiscovery, long timeout, TimeUnit unit) {
+    if (timeout < 0) {
+      throw new InvalidParameterException("Timeout can't be negative");
+    }
+
+    this.suspendDiscovery = suspendDiscovery;
+    this.timeoutMillis = unit.toMillis(timeout);
+  }
+
+  public boolean isSuspendDiscovery() {
+    return suspendDiscovery;
+  }
+
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  @Override public String toString() {
+    return "ConnectOptions{" +
+        "suspendDiscovery=" + suspendDiscovery +
+        ", timeoutMillis=" + timeoutMillis +
+        '}';
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleObserver;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.SerialDisposable;
+import io.reactivex.functions.Cancellable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static android.os.Build.VERSION.SDK_INT;
+
+/**
+ * Runs connect attempts as a staggered race: attempt is started once the previous one fails or
+ * {@code staggerMillis} after it was started, whichever is first. First successful attempt wins
+ * and the rest are disposed, values of attempts which succeed anyway are handed back to be closed.
+ * If all attempts fail, race fails with the error of the last one,
+ * other errors are attached as suppressed.
+ *
+ * <p>With negative stagger attempts are run one after another.
+ */
+final class ConnectRace<T> {
+
+  interface Winner<T> {
+    void onWin(int index, T value);
+
+    /**
+     * Receives value of an attempt which succeeded after the race was won or disposed, so that it
+     * isn't leaked.
+     */
+    void onLose(T value);
+  }
+
+  private final List<Single<T>> attempts;
+  private final long staggerMillis;
+  private final Scheduler scheduler;
+
+  ConnectRace(List<Single<T>> attempts, long staggerMillis, Scheduler scheduler) {
+    this.attempts = attempts;
+    this.staggerMillis = staggerMillis;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @param winner receives the winning value, before it's emitted, and the losing ones
+   * @return Single with value of the first successful attempt
+   */
+  Single<T> run(final Winner<T> winner) {
+    return Single.create(new SingleOnSubscribe<T>() {
+      @Override public void subscribe(@NonNull SingleEmitter<T> emitter) {
+        final Race race = new Race(emitter, winner);
+        emitter.setCancellable(new Cancellable() {
+          @Override public void cancel() {
+            race.cancel();
+          }
+        });
+        race.startNext();
+      }
+    });
+  }
+
+  private final class Race {
+    private final SingleEmitter<T> emitter;
+    private final Winner<T> winner;
+    private final CompositeDisposable running = new CompositeDisposable();
+    private final SerialDisposable timer = new SerialDisposable();
+    private final List<Throwable> errors = new ArrayList<>();
+    private int next;
+    private boolean done;
+
+    Race(SingleEmitter<T> emitter, Winner<T> winner) {
+      this.emitter = emitter;
+      this.winner = winner;
+    }
+
+    synchronized void startNext() {
+      if (done || next == attempts.size()) return;
+
+      final int index = next++;
+      if (next < attempts.size() && staggerMillis >= 0) {
+        timer.set(scheduler.scheduleDirect(new Runnable() {
+          @Override public void run() {
+            startNext();
+          }
+        }, staggerMillis, TimeUnit.MILLISECONDS));
+      }
+
+      attempts.get(index).subscribe(new SingleObserver<T>() {
+        @Override public void onSubscribe(Disposable d) {
+          running.add(d);
+        }
+
+        @Override public void onSuccess(T value) {
+          onAttemptSuccess(index, value);
+        }
+
+        @Override public void onError(Throwable e) {
+          onAttemptError(e);
+        }
+      });
+    }
+
+    void onAttemptSuccess(int index, T value) {
+      boolean won;
+      synchronized (this) {
+        won = !done;
+        done = true;
+      }
+
+      if (!won) {
+        winner.onLose(value);
+        return;
+      }
+
+      dispose();
+      winner.onWin(index, value);
+      if (emitter.isDisposed()) {
+        winner.onLose(value);
+      } else {
+        emitter.onSuccess(value);
+      }
+    }
+
+    void onAttemptError(Throwable e) {
+      boolean failed;
+      synchronized (this) {
+        if (done) return;
+        errors.add(e);
+        failed = errors.size() == attempts.size();
+        done = failed;
+      }
+
+      if (failed) {
+        dispose();
+        emitter.tryOnError(error());
+      } else {
+        startNext();
+      }
+    }
+
+    void cancel() {
+      synchronized (this) {
+        done = true;
+      }
+      dispose();
+    }
+
+    void dispose() {
+      timer.dispose();
+      running.dispose();
+    }
+
+    private Throwable error() {
+      Throwable last = errors.get(errors.size() - 1);
+      if (SDK_INT >= 19) {
+        for (int i = 0; i < errors.size() - 1; i++) {
+          last.addSuppressed(errors.get(i));
+        }
+      }
+      return last;
+    }
+  }
+}
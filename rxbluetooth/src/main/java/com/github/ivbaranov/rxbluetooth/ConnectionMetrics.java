@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters behind {@link ConnectionStats}. Updated from reader, writer and subscriber threads
+ * without locking, so snapshot isn't atomic across counters. Instance can outlive a connection to
+ * accumulate counters across reconnects, see {@link ResilientConnection}.
+ */
+final class ConnectionMetrics {
+  static final int LATENCY_BUCKETS = 24;
+
+  private final AtomicLong bytesRead = new AtomicLong();
+  private final AtomicLong readCount = new AtomicLong();
+  private volatile int maxReadSize;
+  private final AtomicLong framesRead = new AtomicLong();
+  private final AtomicLong framesDropped = new AtomicLong();
+  private final AtomicLong readErrors = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong writeCount = new AtomicLong();
+  private final AtomicLong framesWritten = new AtomicLong();
+  private final AtomicLong writeErrors = new AtomicLong();
+  private final AtomicLongArray writeLatency = new AtomicLongArray(LATENCY_BUCKETS);
+  private final AtomicLong bufferedFrames = new AtomicLong();
+  private final AtomicLong reconnectCount = new AtomicLong();
+
+  private long connectedNanos;
+  private long connectedSince;
+  private boolean connected;
+
+  void onRead(int size) {
+    bytesRead.addAndGet(size);
+    readCount.incrementAndGet();
+    // Only the reader thread of the connection updates the maximum.
+    if (size > maxReadSize) {
+      maxReadSize = size;
+    }
+  }
+
+  void onReadError() {
+    readErrors.incrementAndGet();
+  }
+
+  void onFrameRead() {
+    framesRead.incrementAndGet();
+  }
+
+  void onBuffered(long delta) {
+    bufferedFrames.addAndGet(delta);
+  }
+
+  void onDropped() {
+    framesDropped.incrementAndGet();
+  }
+
+  void onWrite(int size, int frames, long nanos) {
+    bytesWritten.addAndGet(size);
+    writeCount.incrementAndGet();
+    framesWritten.addAndGet(frames);
+
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    int bucket = 64 - Long.numberOfLeadingZeros(micros);
+    writeLatency.incrementAndGet(Math.min(bucket, LATENCY_BUCKETS - 1));
+  }
+
+  void onWriteError() {
+    writeErrors.incrementAndGet();
+  }
+
+  void onReconnect() {
+    reconnectCount.incrementAndGet();
+  }
+
+  long getReconnectCount() {
+    return reconnectCount.get();
+  }
+
+  synchronized void onConnected() {
+    if (!connected) {
+      connected = true;
+      connectedSince = System.nanoTime();
+    }
+  }
+
+  synchronized void onDisconnected() {
+    if (connected) {
+      connected = false;
+      connectedNanos += System.nanoTime() - connectedSince;
+    }
+  }
+
+  private synchronized long connectedMillis() {
+    long nanos = connectedNanos;
+    if (connected) {
+      nanos += System.nanoTime() - connectedSince;
+    }
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  ConnectionStats snapshot(int writeQueueDepth) {
+    long[] histogram = new long[LATENCY_BUCKETS];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = writeLatency.get(i);
+    }
+
+    return new ConnectionStats(bytesRead.get(), readCount.get(), maxReadSize, framesRead.get(),
+        framesDropped.get(), readErrors.get(), bytesWritten.get(), writeCount.get(),
+        framesWritten.get(), writeErrors.get(), histogram, bufferedFrames.get(), writeQueueDepth,
+        reconnectCount.get(), connectedMillis());
+  }
+}
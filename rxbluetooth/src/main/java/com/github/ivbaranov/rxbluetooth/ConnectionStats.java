@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.util.Arrays;
+
+/**
+ * Snapshot of counters of a {@link BluetoothConnection}, or of all connections made by a {@link
+ * ResilientConnection}. Counters are cumulative, rates are obtained by comparing two snapshots.
+ *
+ * @see BluetoothConnection#getStats()
+ * @see BluetoothConnection#observeStats(long, java.util.concurrent.TimeUnit)
+ */
+public final class ConnectionStats {
+
+  private final long bytesRead;
+  private final long readCount;
+  private final int maxReadSize;
+  private final long framesRead;
+  private final long framesDropped;
+  private final long readErrors;
+  private final long bytesWritten;
+  private final long writeCount;
+  private final long framesWritten;
+  private final long writeErrors;
+  private final long[] writeLatencyHistogram;
+  private final long bufferedFrames;
+  private final int writeQueueDepth;
+  private final long reconnectCount;
+  private final long connectedMillis;
+
+  ConnectionStats(long bytesRead, long readCount, int maxReadSize, long framesRead,
+      long framesDropped, long readErrors, long bytesWritten, long writeCount, long framesWritten,
+      long writeErrors, long[] writeLatencyHistogram, long bufferedFrames, int writeQueueDepth,
+      long reconnectCount, long connectedMillis) {
+    this.bytesRead = bytesRead;
+    this.readCount = readCount;
+    this.maxReadSize = maxReadSize;
+    this.framesRead = framesRead;
+    this.framesDropped = framesDropped;
+    this.readErrors = readErrors;
+    this.bytesWritten = bytesWritten;
+    this.writeCount = writeCount;
+    this.framesWritten = framesWritten;
+    this.writeErrors = writeErrors;
+    this.writeLatencyHistogram = writeLatencyHistogram;
+    this.bufferedFrames = bufferedFrames;
+    this.writeQueueDepth = writeQueueDepth;
+    this.reconnectCount = reconnectCount;
+    this.connectedMillis = connectedMillis;
+  }
+
+  /**
+   * Returns upper bound of a bucket of {@link #getWriteLatencyHistogram()}. Bucket {@code i}
+   * counts writes which took less than {@code 2^i} microseconds, the last bucket counts all
+   * longer writes.
+   *
+   * @param bucket index of the bucket
+   * @return upper bound in microseconds, or {@link Long#MAX_VALUE} for the last bucket
+   */
+  public static long getWriteLatencyBucketMicros(int bucket) {
+    return bucket < ConnectionMetrics.LATENCY_BUCKETS - 1 ? 1L << bucket : Long.MAX_VALUE;
+  }
+
+  /** @return amount of bytes read from the input stream */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /** @return amount of reads from the input stream which returned data */
+  public long getReadCount() {
+    return readCount;
+  }
+
+  /** @return largest amount of bytes returned by a single read */
+  public int getMaxReadSize() {
+    return maxReadSize;
+  }
+
+  /** @return average amount of bytes returned by a read, small values mean chatty link */
+  public double getAverageReadSize() {
+    return readCount == 0 ? 0 : (double) bytesRead / readCount;
+  }
+
+  /** @return amount of strings and frames decoded from the input stream */
+  public long getFramesRead() {
+    return framesRead;
+  }
+
+  /** @return amount of items dropped by bounded streams because subscriber was too slow */
+  public long getFramesDropped() {
+    return framesDropped;
+  }
+
+  /** @return amount of failed reads */
+  public long getReadErrors() {
+    return readErrors;
+  }
+
+  /** @return amount of bytes written to the output stream */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /** @return amount of flushed writes, a single write may carry several coalesced payloads */
+  public long getWriteCount() {
+    return writeCount;
+  }
+
+  /** @return amount of payloads sent with {@code send()} and {@code sendAsync()} */
+  public long getFramesWritten() {
+    return framesWritten;
+  }
+
+  /** @return amount of failed writes */
+  public long getWriteErrors() {
+    return writeErrors;
+  }
+
+  /**
+   * Returns counts of writes by time taken to write and flush them.
+   *
+   * @return copy of the histogram
+   * @see #getWriteLatencyBucketMicros(int)
+   */
+  public long[] getWriteLatencyHistogram() {
+    return writeLatencyHistogram.clone();
+  }
+
+  /** @return amount of items waiting in buffers of bounded streams for slow subscribers */
+  public long getBufferedFrames() {
+    return bufferedFrames;
+  }
+
+  /** @return amount of payloads queued by {@code sendAsync()} and not written yet */
+  public int getWriteQueueDepth() {
+    return writeQueueDepth;
+  }
+
+  /** @return amount of times connection was re-established after it had been lost */
+  public long getReconnectCount() {
+    return reconnectCount;
+  }
+
+  /** @return total time the connection was open, in milliseconds */
+  public long getConnectedMillis() {
+    return connectedMillis;
+  }
+
+  @Override public String toString() {
+    return "ConnectionStats{" +
+        "bytesRead=" + bytesRead +
+        ", readCount=" + readCount +
+        ", maxReadSize=" + maxReadSize +
+        ", framesRead=" + framesRead +
+        ", framesDropped=" + framesDropped +
+        ", readErrors=" + readErrors +
+        ", bytesWritten=" + bytesWritten +
+        ", writeCount=" + writeCount +
+        ", framesWritten=" + framesWritten +
+        ", writeErrors=" + writeErrors +
+        ", writeLatencyHistogram=" + Arrays.toString(writeLatencyHistogram) +
+        ", bufferedFrames=" + bufferedFrames +
+        ", writeQueueDepth=" + writeQueueDepth +
+        ", reconnectCount=" + reconnectCount +
+        ", connectedMillis=" + connectedMillis +
+        '}';
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.events.DiscoveredDevice;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last sightings of discovered devices keyed by address. Holds up to {@code maxSize} devices,
+ * evicting the least recently seen ones, and forgets devices not seen for {@code ttlNanos}.
+ * Not thread safe.
+ */
+final class DeviceCache {
+
+  private static final class Sighting {
+    final DiscoveredDevice device;
+    final long seenAt;
+
+    Sighting(DiscoveredDevice device, long seenAt) {
+      this.device = device;
+      this.seenAt = seenAt;
+    }
+  }
+
+  private final long ttlNanos;
+  private final LinkedHashMap<String, Sighting> entries;
+
+  DeviceCache(final int maxSize, long ttlNanos) {
+    this.ttlNanos = ttlNanos;
+    // Access order keeps the least recently seen device first.
+    this.entries = new LinkedHashMap<String, Sighting>(16, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<String, Sighting> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Records sighting of a device.
+   *
+   * @return true if the sighting should be emitted in {@code mode}
+   */
+  boolean put(DiscoveredDevice device, DiscoveryMode mode) {
+    long now = System.nanoTime();
+    evictExpired(now);
+
+    Sighting previous =
+        entries.put(device.getBluetoothDevice().getAddress(), new Sighting(device, now));
+    if (previous == null) {
+      return true;
+    }
+
+    switch (mode) {
+      case FIRST_SIGHTING:
+        return false;
+      case ON_CHANGE:
+        return !previous.device.isSameSighting(device);
+      default:
+        return true;
+    }
+  }
+
+  private void evictExpired(long now) {
+    Iterator<Sighting> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (now - iterator.next().seenAt < ttlNanos) {
+        // The rest were seen later.
+        return;
+      }
+      iterator.remove();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import java.util.UUID;
+
+/**
+ * Data received from one of the connections of {@link BluetoothConnectionPool}, tagged with the
+ * device and service UUID of the connection.
+ */
+public final class DeviceFrame {
+
+  private final BluetoothDevice bluetoothDevice;
+  private final UUID uuid;
+  private final byte[] data;
+
+  public DeviceFrame(BluetoothDevice bluetoothDevice, UUID uuid, byte[] data) {
+    this.bluetoothDevice = bluetoothDevice;
+    this.uuid = uuid;
+    this.data = data;
+  }
+
+  public BluetoothDevice getBluetoothDevice() {
+    return bluetoothDevice;
+  }
+
+  public UUID getUuid() {
+    return uuid;
+  }
+
+  /**
+   * Returns chunk of bytes or decoded frame, depending on how the pool was created.
+   */
+  public byte[] getData() {
+    return data;
+  }
+
+  @Override public String toString() {
+    return "DeviceFrame{" +
+        "bluetoothDevice=" + bluetoothDevice +
+        ", uuid=" + uuid +
+        ", length=" + data.length +
+        '}';
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+/**
+ * Which sightings of a device are emitted by {@link RxBluetooth#observeDiscoveredDevices(
+ * DiscoveryMode)}. Devices not seen for longer than the time to live of the device cache are
+ * treated as new in all modes.
+ */
+public enum DiscoveryMode {
+  /** Emit only the first sighting of a device. */
+  FIRST_SIGHTING,
+  /** Emit the first sighting and sightings which report different name, class or RSSI. */
+  ON_CHANGE,
+  /** Emit every sighting, the cache only tracks devices. */
+  EVERY_SIGHTING
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.decoders.FrameDecoder;
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import io.reactivex.FlowableOperator;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Turns chunks of bytes into frames using {@link FrameDecoder} and maps every frame to {@code T}.
+ * Frames should be copied by {@link Mapper}, since decoder reuses its buffer.
+ *
+ * <p>Chunks are requested one at a time and only while downstream has outstanding demand, so a
+ * slow subscriber holds back the reader instead of growing a buffer.
+ */
+final class FrameOperator<T> implements FlowableOperator<T, byte[]> {
+
+  interface Mapper<T> {
+    T map(byte[] buffer, int offset, int length);
+  }
+
+  static final Mapper<byte[]> COPY = new Mapper<byte[]>() {
+    @Override public byte[] map(byte[] buffer, int offset, int length) {
+      byte[] frame = new byte[length];
+      System.arraycopy(buffer, offset, frame, 0, length);
+      return frame;
+    }
+  };
+
+  private final FrameDecoder decoder;
+  private final Mapper<T> mapper;
+
+  FrameOperator(FrameDecoder decoder, Mapper<T> mapper) {
+    this.decoder = decoder;
+    this.mapper = mapper;
+  }
+
+  @Override public Subscriber<? super byte[]> apply(Subscriber<? super T> subscriber) {
+    decoder.reset();
+    return new FrameSubscriber<>(subscriber, decoder, mapper);
+  }
+
+  static final class FrameSubscriber<T> extends AtomicInteger
+      implements Subscriber<byte[]>, Subscription, FrameDecoder.Callback {
+
+    private final Subscriber<? super T> downstream;
+    private final FrameDecoder decoder;
+    private final Mapper<T> mapper;
+
+    private final ArrayDeque<T> queue = new ArrayDeque<>();
+    private final AtomicLong requested = new AtomicLong();
+
+    private Subscription upstream;
+    private volatile boolean awaitingChunk;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private Throwable error;
+
+    FrameSubscriber(Subscriber<? super T> downstream, FrameDecoder decoder, Mapper<T> mapper) {
+      this.downstream = downstream;
+      this.decoder = decoder;
+      this.mapper = mapper;
+    }
+
+    @Override public void onSubscribe(Subscription s) {
+      upstream = s;
+      downstream.onSubscribe(this);
+    }
+
+    @Override public void onNext(byte[] chunk) {
+      if (done) return;
+      awaitingChunk = false;
+
+      try {
+        decoder.decode(chunk, 0, chunk.length, this);
+      } catch (InvalidFrameException e) {
+        upstream.cancel();
+        error = e;
+        done = true;
+      }
+      drain();
+    }
+
+    @Override public void onError(Throwable e) {
+      if (done) return;
+
+      decoder.flush(this);
+      error = e;
+      done = true;
+      drain();
+    }
+
+    @Override public void onComplete() {
+      if (done) return;
+
+      decoder.flush(this);
+      done = true;
+      drain();
+    }
+
+    @Override public void onFrame(byte[] buffer, int offset, int length) {
+      T frame = mapper.map(buffer, offset, length);
+      synchronized (queue) {
+        queue.offer(frame);
+      }
+    }
+
+    @Override public void request(long n) {
+      if (n <= 0) return;
+
+      for (;;) {
+        long current = requested.get();
+        long next = current + n;
+        if (next < 0) {
+          next = Long.MAX_VALUE;
+        }
+        if (requested.compareAndSet(current, next)) {
+          break;
+        }
+      }
+      drain();
+    }
+
+    @Override public void cancel() {
+      if (cancelled) return;
+
+      cancelled = true;
+      upstream.cancel();
+      if (getAndIncrement() == 0) {
+        clear();
+      }
+    }
+
+    private void drain() {
+      if (getAndIncrement() != 0) return;
+
+      int missed = 1;
+      for (;;) {
+        long r = requested.get();
+        long e = 0;
+
+        while (e != r) {
+          if (cancelled) {
+            clear();
+            return;
+          }
+
+          boolean d = done;
+          T frame = poll();
+          if (frame == null) {
+            if (d) {
+              terminate();
+              return;
+            }
+            break;
+          }
+
+          downstream.onNext(frame);
+          e++;
+        }
+
+        if (e == r) {
+          if (cancelled) {
+            clear();
+            return;
+          }
+          if (done && isEmpty()) {
+            terminate();
+            return;
+          }
+        }
+
+        if (e != 0 && r != Long.MAX_VALUE) {
+          requested.addAndGet(-e);
+        }
+
+        // Ask for another chunk only when decoded frames are exhausted and there is demand.
+        if (!done && !awaitingChunk && isEmpty() && requested.get() != 0) {
+          awaitingChunk = true;
+          upstream.request(1);
+        }
+
+        missed = addAndGet(-missed);
+        if (missed == 0) {
+          break;
+        }
+      }
+    }
+
+    private void terminate() {
+      Throwable error = this.error;
+      if (error != null) {
+        downstream.onError(error);
+      } else {
+        downstream.onComplete();
+      }
+    }
+
+    private T poll() {
+      synchronized (queue) {
+        return queue.poll();
+      }
+    }
+
+    private boolean isEmpty() {
+      synchronized (queue) {
+        return queue.isEmpty();
+      }
+    }
+
+    private void clear() {
+      synchronized (queue) {
+        queue.clear();
+      }
+    }
+  }
+}
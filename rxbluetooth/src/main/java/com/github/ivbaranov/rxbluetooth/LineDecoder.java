@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decodes chunks of bytes into lines of text separated by a delimiter sequence. Bytes are decoded
+ * to chars first, so multi-byte characters split between chunks are decoded correctly and
+ * delimiter is matched against chars, not against bytes of other characters. Delimiter is not
+ * included into lines. Malformed input is replaced, as {@link String#String(byte[], Charset)}
+ * does.
+ *
+ * <p>All buffers are reused: the line is valid only until the next call of {@link #next()}.
+ */
+final class LineDecoder {
+  private static final int INPUT_SIZE = 1024;
+
+  private final CharsetDecoder decoder;
+  private final char[] delimiter;
+  private final int[] failure;
+  private final int maxLineLength;
+
+  private final ByteBuffer input = ByteBuffer.allocate(INPUT_SIZE);
+  private final CharBuffer chars = CharBuffer.allocate(INPUT_SIZE);
+  private byte[] chunk;
+  private int chunkOffset;
+
+  private char[] line = new char[128];
+  private CharBuffer lineView = CharBuffer.wrap(line).asReadOnlyBuffer();
+  private int size;
+  private int length;
+  private int matched;
+
+  /**
+   * @param charset charset of the text
+   * @param maxLineLength maximum amount of chars in a line, not including delimiter
+   * @param delimiter char(s) used as line delimiter
+   */
+  LineDecoder(Charset charset, int maxLineLength, String delimiter) {
+    this.decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.delimiter = delimiter.toCharArray();
+    this.failure = failure(this.delimiter);
+    this.maxLineLength = maxLineLength;
+    chars.flip();
+  }
+
+  /** Sets bytes to decode lines from. Previous chunk should be consumed by {@link #next()}. */
+  void feed(byte[] chunk) {
+    this.chunk = chunk;
+    this.chunkOffset = 0;
+  }
+
+  /**
+   * Decodes the next line.
+   *
+   * @return true if a line is decoded, false if more bytes are needed
+   * @throws InvalidFrameException if the line exceeds maximum length
+   */
+  boolean next() throws InvalidFrameException {
+    for (;;) {
+      while (chars.hasRemaining()) {
+        char c = chars.get();
+        append(c);
+
+        while (matched > 0 && c != delimiter[matched]) {
+          matched = failure[matched - 1];
+        }
+        if (c == delimiter[matched]) {
+          matched++;
+        }
+
+        if (matched == delimiter.length) {
+          length = size - delimiter.length;
+          size = 0;
+          matched = 0;
+          return true;
+        } else if (size - matched > maxLineLength) {
+          reset();
+          throw new InvalidFrameException("Line exceeds " + maxLineLength + " chars");
+        }
+      }
+
+      int moved = 0;
+      if (chunk != null) {
+        moved = Math.min(input.remaining(), chunk.length - chunkOffset);
+        input.put(chunk, chunkOffset, moved);
+        chunkOffset += moved;
+      }
+      decode(false);
+      if (!chars.hasRemaining() && moved == 0) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Decodes bytes left from an incomplete character and takes chars received after the last
+   * delimiter as the last line.
+   *
+   * @return true if there is the last line
+   * @throws InvalidFrameException if the last line exceeds maximum length
+   */
+  boolean flush() throws InvalidFrameException {
+    decode(true);
+    while (chars.hasRemaining()) {
+      append(chars.get());
+    }
+    chars.clear();
+    decoder.flush(chars);
+    chars.flip();
+    while (chars.hasRemaining()) {
+      append(chars.get());
+    }
+
+    length = size;
+    reset();
+    if (length > maxLineLength) {
+      throw new InvalidFrameException("Line exceeds " + maxLineLength + " chars");
+    }
+    return length > 0;
+  }
+
+  void reset() {
+    decoder.reset();
+    input.clear();
+    chars.clear();
+    chars.flip();
+    chunk = null;
+    size = 0;
+    matched = 0;
+  }
+
+  /** Returns chars of the decoded line. */
+  char[] line() {
+    return line;
+  }
+
+  /** Returns amount of chars in the decoded line. */
+  int length() {
+    return length;
+  }
+
+  /** Returns read-only view of the decoded line. */
+  CharSequence view() {
+    lineView.clear();
+    lineView.limit(length);
+    return lineView;
+  }
+
+  private void decode(boolean endOfInput) {
+    chars.clear();
+    input.flip();
+    decoder.decode(input, chars, endOfInput);
+    input.compact();
+    chars.flip();
+  }
+
+  private void append(char c) {
+    if (size == line.length) {
+      char[] grown = new char[line.length * 2];
+      System.arraycopy(line, 0, grown, 0, size);
+      line = grown;
+      lineView = CharBuffer.wrap(line).asReadOnlyBuffer();
+    }
+    line[size++] = c;
+  }
+
+  /** Returns KMP failure function: length of the longest proper prefix which is also a suffix. */
+  private static int[] failure(char[] pattern) {
+    int[] failure = new int[pattern.length];
+    int k = 0;
+    for (int i = 1; i < pattern.length; i++) {
+      while (k > 0 && pattern[i] != pattern[k]) {
+        k = failure[k - 1];
+      }
+      if (pattern[i] == pattern[k]) {
+        k++;
+      }
+      failure[i] = k;
+    }
+    return failure;
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import io.reactivex.FlowableOperator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Turns chunks of bytes into lines using {@link LineDecoder} and maps every line to {@code T}.
+ *
+ * <p>Unlike {@link FrameOperator}, lines are decoded one at a time and emitted as soon as
+ * downstream requests them. At most one line waits for demand in the decoder's buffer, so {@link
+ * Mapper} may return a view of that buffer, which stays valid until {@code onNext()} returns.
+ */
+final class LineOperator<T> implements FlowableOperator<T, byte[]> {
+
+  interface Mapper<T> {
+    T map(LineDecoder decoder);
+  }
+
+  static final Mapper<String> STRING = new Mapper<String>() {
+    @Override public String map(LineDecoder decoder) {
+      return new String(decoder.line(), 0, decoder.length());
+    }
+  };
+
+  static final Mapper<CharSequence> VIEW = new Mapper<CharSequence>() {
+    @Override public CharSequence map(LineDecoder decoder) {
+      return decoder.view();
+    }
+  };
+
+  private final LineDecoder decoder;
+  private final Mapper<T> mapper;
+
+  LineOperator(LineDecoder decoder, Mapper<T> mapper) {
+    this.decoder = decoder;
+    this.mapper = mapper;
+  }
+
+  @Override public Subscriber<? super byte[]> apply(Subscriber<? super T> subscriber) {
+    decoder.reset();
+    return new LineSubscriber<>(subscriber, decoder, mapper);
+  }
+
+  static final class LineSubscriber<T> extends AtomicInteger
+      implements Subscriber<byte[]>, Subscription {
+
+    private final Subscriber<? super T> downstream;
+    private final LineDecoder decoder;
+    private final Mapper<T> mapper;
+
+    private final AtomicLong requested = new AtomicLong();
+
+    private Subscription upstream;
+    private volatile byte[] chunk;
+    private volatile boolean awaitingChunk;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private Throwable error;
+    private boolean pending;
+    private boolean finished;
+
+    LineSubscriber(Subscriber<? super T> downstream, LineDecoder decoder, Mapper<T> mapper) {
+      this.downstream = downstream;
+      this.decoder = decoder;
+      this.mapper = mapper;
+    }
+
+    @Override public void onSubscribe(Subscription s) {
+      upstream = s;
+      downstream.onSubscribe(this);
+    }
+
+    @Override public void onNext(byte[] chunk) {
+      if (done) return;
+
+      this.chunk = chunk;
+      awaitingChunk = false;
+      drain();
+    }
+
+    @Override public void onError(Throwable e) {
+      if (done) return;
+
+      error = e;
+      done = true;
+      drain();
+    }
+
+    @Override public void onComplete() {
+      if (done) return;
+
+      done = true;
+      drain();
+    }
+
+    @Override public void request(long n) {
+      if (n <= 0) return;
+
+      for (;;) {
+        long current = requested.get();
+        long next = current + n;
+        if (next < 0) {
+          next = Long.MAX_VALUE;
+        }
+        if (requested.compareAndSet(current, next)) {
+          break;
+        }
+      }
+      drain();
+    }
+
+    @Override public void cancel() {
+      if (cancelled) return;
+
+      cancelled = true;
+      upstream.cancel();
+    }
+
+    private void drain() {
+      if (getAndIncrement() != 0) return;
+
+      int missed = 1;
+      for (;;) {
+        long r = requested.get();
+        long e = 0;
+
+        while (e != r) {
+          if (cancelled) {
+            return;
+          }
+
+          if (!pending) {
+            if (finished) {
+              terminate();
+              return;
+            }
+            if (!poll()) {
+              return;
+            }
+            if (!pending) {
+              if (finished) {
+                continue;
+              }
+              break;
+            }
+          }
+
+          pending = false;
+          downstream.onNext(mapper.map(decoder));
+          e++;
+        }
+
+        if (e == r) {
+          if (cancelled) {
+            return;
+          }
+          // Without demand a line is decoded ahead only to find out if the stream is over.
+          if (done && !pending && !finished && !poll()) {
+            return;
+          }
+          if (finished && !pending) {
+            terminate();
+            return;
+          }
+        }
+
+        if (e != 0 && r != Long.MAX_VALUE) {
+          requested.addAndGet(-e);
+        }
+
+        // Ask for another chunk only when decoded lines are exhausted and there is demand.
+        if (!done && !awaitingChunk && this.chunk == null && !pending
+            && requested.get() != 0) {
+          awaitingChunk = true;
+          upstream.request(1);
+        }
+
+        missed = addAndGet(-missed);
+        if (missed == 0) {
+          break;
+        }
+      }
+    }
+
+    /**
+     * Decodes the next line into {@code pending}. Once upstream is done and no line is left,
+     * takes the last line and sets {@code finished}.
+     *
+     * @return false if the stream failed with a line too long
+     */
+    private boolean poll() {
+      // Upstream sets the chunk before terminating, so it is seen once done is.
+      boolean d = done;
+      byte[] chunk = this.chunk;
+      if (chunk != null) {
+        this.chunk = null;
+        decoder.feed(chunk);
+      }
+
+      try {
+        pending = decoder.next();
+        if (!pending && d) {
+          finished = true;
+          pending = decoder.flush();
+        }
+        return true;
+      } catch (InvalidFrameException ex) {
+        cancelled = true;
+        upstream.cancel();
+        downstream.onError(ex);
+        return false;
+      }
+    }
+
+    private void terminate() {
+      Throwable error = this.error;
+      if (error != null) {
+        downstream.onError(error);
+      } else {
+        downstream.onComplete();
+      }
+    }
+  }
+}
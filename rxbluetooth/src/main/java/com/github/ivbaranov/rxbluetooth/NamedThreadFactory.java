@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Creates daemon threads named with a prefix and a sequence number. */
+final class NamedThreadFactory implements ThreadFactory {
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  private final String prefix;
+
+  NamedThreadFactory(String prefix) {
+    this.prefix = prefix;
+  }
+
+  @Override public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, prefix + "-" + SEQUENCE.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+}
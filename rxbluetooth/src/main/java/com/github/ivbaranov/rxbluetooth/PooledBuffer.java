@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bytes of a single read emitted by {@link BluetoothConnection#observeBufferStream(BufferPool)}.
+ * The buffer belongs to a {@link BufferPool} and is reused by a later read once {@link #release()}
+ * is called, so it must not be touched after that. A buffer which is never released is simply
+ * garbage collected.
+ */
+public final class PooledBuffer {
+
+  private final BufferPool pool;
+  private final ByteBuffer buffer;
+  private final ByteBuffer view;
+  private final AtomicBoolean released = new AtomicBoolean();
+
+  PooledBuffer(BufferPool pool, ByteBuffer buffer) {
+    this.pool = pool;
+    this.buffer = buffer;
+    this.view = buffer.asReadOnlyBuffer();
+  }
+
+  /**
+   * Read-only view of the bytes read. Position of the view is 0 and limit is the amount of bytes
+   * read. The same view instance is returned until the buffer is released.
+   *
+   * @return read-only view of the bytes read
+   */
+  public ByteBuffer getBuffer() {
+    return view;
+  }
+
+  /**
+   * @return amount of bytes read
+   */
+  public int size() {
+    return view.limit();
+  }
+
+  /**
+   * Returns the buffer to its pool. Calls after the first one are ignored.
+   */
+  public void release() {
+    if (released.compareAndSet(false, true)) {
+      pool.recycle(this);
+    }
+  }
+
+  void acquired() {
+    released.set(false);
+  }
+
+  ByteBuffer buffer() {
+    return buffer;
+  }
+
+  void filled(int length) {
+    view.clear();
+    view.limit(length);
+  }
+}
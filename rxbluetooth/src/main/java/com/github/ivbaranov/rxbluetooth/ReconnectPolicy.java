@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.security.InvalidParameterException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exponential backoff with jitter used by {@link ResilientConnection} between connection
+ * attempts. Delay before reconnect attempt {@code n}, counted since the connection was lost or
+ * failed to establish, is {@code min(maxDelay, initialDelay * 2^(n - 1))}, reduced by a random
+ * part of up to {@code jitter} of it, so that many clients don't retry in lockstep.
+ */
+public final class ReconnectPolicy {
+
+  /** One second initial delay, one minute maximum delay, 50% jitter, unlimited attempts. */
+  public static final ReconnectPolicy DEFAULT =
+      new ReconnectPolicy(1, 60, TimeUnit.SECONDS, 0.5, 0);
+
+  private final long initialDelayMillis;
+  private final long maxDelayMillis;
+  private final double jitter;
+  private final int maxAttempts;
+
+  /**
+   * @param initialDelay delay before the first reconnect attempt
+   * @param maxDelay maximum delay between attempts
+   * @param unit time unit of delays
+   * @param jitter part of delay which is randomized, from 0 to 1
+   * @param maxAttempts maximum amount of consecutive failed connection attempts, 0 for unlimited.
+   * Losing an established connection isn't a failed attempt, so it is always followed by at least
+   * one reconnect attempt.
+   */
+  public ReconnectPolicy(long initialDelay, long maxDelay, TimeUnit unit, double jitter,
+      int maxAttempts) {
+    if (initialDelay < 0 || maxDelay < initialDelay) {
+      throw new InvalidParameterException("Delays should be positive, initial one not greater");
+    }
+    if (jitter < 0 || jitter > 1) {
+      throw new InvalidParameterException("Jitter should be from 0 to 1");
+    }
+    if (maxAttempts < 0) {
+      throw new InvalidParameterException("Amount of attempts can't be negative");
+    }
+
+    this.initialDelayMillis = unit.toMillis(initialDelay);
+    this.maxDelayMillis = unit.toMillis(maxDelay);
+    this.jitter = jitter;
+    this.maxAttempts = maxAttempts;
+  }
+
+  /** Returns true if one more attempt is allowed after {@code failed} consecutive failed ones. */
+  boolean shouldRetry(int failed) {
+    return maxAttempts == 0 || failed < maxAttempts;
+  }
+
+  /** Returns delay in milliseconds before {@code attempt}, starting from 1. */
+  long delayMillis(int attempt, Random random) {
+    double delay = initialDelayMillis * Math.pow(2, Math.min(attempt - 1, 62));
+    delay = Math.min(delay, maxDelayMillis);
+    return (long) (delay * (1 - jitter * random.nextDouble()));
+  }
+}
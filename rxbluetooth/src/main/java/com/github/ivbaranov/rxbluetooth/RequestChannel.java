@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.decoders.FrameDecoder;
+import com.github.ivbaranov.rxbluetooth.exceptions.ConnectionClosedException;
+import io.reactivex.CompletableObserver;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Request/response layer on top of {@link BluetoothConnection}. Responses are reassembled from the
+ * input stream by a {@link FrameDecoder} and matched to outstanding requests by a {@link
+ * Correlator}. Up to {@code maxOutstanding} requests are sent without waiting for responses,
+ * further requests wait in order until a slot is free.
+ *
+ * <pre>{@code
+ * // ELM327: one command at a time, response ends with '>' prompt
+ * RequestChannel channel = new RequestChannel(connection, new DelimiterFrameDecoder((byte) '>'),
+ *     RequestChannel.FIFO, 1, 2, TimeUnit.SECONDS);
+ * channel.request("010C\r".getBytes()).subscribe(...);
+ * }</pre>
+ */
+public final class RequestChannel {
+
+  /**
+   * Decides which outstanding request a response answers.
+   */
+  public interface Correlator {
+    /**
+     * Outstanding requests are checked oldest first, response answers the first one matched.
+     *
+     * @param request outstanding request
+     * @param response received frame
+     * @return true if {@code response} answers {@code request}
+     */
+    boolean matches(byte[] request, byte[] response);
+  }
+
+  /**
+   * Matches every response to the oldest outstanding request, for devices which answer in order.
+   * Response arriving after its request timed out is matched to the next request, so timeouts
+   * should be generous.
+   */
+  public static final Correlator FIFO = new Correlator() {
+    @Override public boolean matches(byte[] request, byte[] response) {
+      return true;
+    }
+  };
+
+  /**
+   * Matches responses carrying the same id as the request, e.g. Modbus TCP transaction id.
+   *
+   * @param offset offset of the id in both request and response
+   * @param length length of the id in bytes
+   * @return correlator comparing ids
+   */
+  public static Correlator sequenceId(final int offset, final int length) {
+    if (offset < 0 || length <= 0) {
+      throw new InvalidParameterException("Invalid id offset or length");
+    }
+
+    return new Correlator() {
+      @Override public boolean matches(byte[] request, byte[] response) {
+        if (request.length < offset + length || response.length < offset + length) {
+          return false;
+        }
+        for (int i = offset; i < offset + length; i++) {
+          if (request[i] != response[i]) return false;
+        }
+        return true;
+      }
+    };
+  }
+
+  private static final class Pending {
+    final byte[] request;
+    final SingleEmitter<byte[]> emitter;
+    final long timeoutMillis;
+    Disposable timeout;
+    boolean cancelled;
+
+    Pending(byte[] request, SingleEmitter<byte[]> emitter, long timeoutMillis) {
+      this.request = request;
+      this.emitter = emitter;
+      this.timeoutMillis = timeoutMillis;
+    }
+  }
+
+  private final BluetoothConnection connection;
+  private final Correlator correlator;
+  private final int maxOutstanding;
+  private final long timeoutMillis;
+  private final Scheduler timeoutScheduler = Schedulers.computation();
+  private final Subject<byte[]> unsolicited = PublishSubject.<byte[]>create().toSerialized();
+  private final Disposable frames;
+
+  private final ArrayDeque<Pending> waiting = new ArrayDeque<>();
+  private final List<Pending> outstanding = new ArrayList<>();
+  private Throwable closed;
+
+  /**
+   * Creates channel and starts reading responses from the connection.
+   *
+   * @param connection connection to send requests with
+   * @param decoder decoder reassembling responses, see {@link BluetoothConnection#observeFrames(
+   * FrameDecoder)}
+   * @param correlator matches responses to requests, e.g. {@link #FIFO} or {@link
+   * #sequenceId(int, int)}
+   * @param maxOutstanding maximum amount of requests waiting for response at the same time
+   * @param timeout default time to wait for response, counted from sending the request
+   * @param unit time unit of {@code timeout}
+   */
+  public RequestChannel(BluetoothConnection connection, FrameDecoder decoder,
+      Correlator correlator, int maxOutstanding, long timeout, TimeUnit unit) {
+    if (connection == null || decoder == null || correlator == null) {
+      throw new InvalidParameterException("Arguments can't be null");
+    }
+    if (maxOutstanding <= 0) {
+      throw new InvalidParameterException("Amount of outstanding requests should be positive");
+    }
+    if (timeout <= 0) {
+      throw new InvalidParameterException("Timeout should be positive");
+    }
+
+    this.connection = connection;
+    this.correlator = correlator;
+    this.maxOutstanding = maxOutstanding;
+    this.timeoutMillis = unit.toMillis(timeout);
+    this.frames = connection.observeFrames(decoder).subscribe(new Consumer<byte[]>() {
+      @Override public void accept(byte[] frame) {
+        onResponse(frame);
+      }
+    }, new Consumer<Throwable>() {
+      @Override public void accept(Throwable error) {
+        close(error);
+      }
+    });
+  }
+
+  /**
+   * Sends request once there is a free slot and waits for its response with default timeout.
+   *
+   * @param request request to send, shouldn't be modified until sent
+   * @return Single with response, or notifies observers with {@link TimeoutException} or {@link
+   * ConnectionClosedException} via {@code onError()}
+   */
+  public Single<byte[]> request(byte[] request) {
+    return request(request, timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sends request once there is a free slot and waits for its response. Disposing a sent request
+   * keeps its slot until the response arrives or times out, so that responses stay in step.
+   *
+   * @param request request to send, shouldn't be modified until sent
+   * @param timeout time to wait for response, counted from sending the request
+   * @param unit time unit of {@code timeout}
+   * @return Single with response, or notifies observers with {@link TimeoutException} or {@link
+   * ConnectionClosedException} via {@code onError()}
+   */
+  public Single<byte[]> request(final byte[] request, long timeout, TimeUnit unit) {
+    if (request == null) {
+      throw new InvalidParameterException("Request can't be null");
+    }
+    if (timeout <= 0) {
+      throw new InvalidParameterException("Timeout should be positive");
+    }
+
+    final long timeoutMillis = unit.toMillis(timeout);
+    return Single.create(new SingleOnSubscribe<byte[]>() {
+      @Override public void subscribe(@NonNull SingleEmitter<byte[]> emitter) {
+        final Pending pending = new Pending(request, emitter, timeoutMillis);
+        emitter.setCancellable(new Cancellable() {
+          @Override public void cancel() {
+            onCancel(pending);
+          }
+        });
+        enqueue(pending);
+      }
+    });
+  }
+
+  /**
+   * Observes frames which didn't match any outstanding request, e.g. unsolicited notifications
+   * of the device or responses which arrived after their request timed out.
+   *
+   * @return RxJava Observable with frames, emitted on the reader thread of the connection
+   */
+  public Observable<byte[]> observeUnsolicited() {
+    return unsolicited;
+  }
+
+  /**
+   * Stops reading responses and fails all waiting and outstanding requests. The connection stays
+   * open.
+   */
+  public void close() {
+    frames.dispose();
+    close(new ConnectionClosedException("Request channel closed", null));
+  }
+
+  private void enqueue(Pending pending) {
+    Throwable error;
+    synchronized (this) {
+      error = closed;
+      if (error == null) {
+        waiting.add(pending);
+        dispatch();
+      }
+    }
+
+    if (error != null) {
+      pending.emitter.tryOnError(error);
+    }
+  }
+
+  /** Sends waiting requests while there are free slots. Called holding the lock. */
+  private void dispatch() {
+    while (outstanding.size() < maxOutstanding && !waiting.isEmpty()) {
+      final Pending pending = waiting.poll();
+      if (pending.cancelled) continue;
+
+      outstanding.add(pending);
+      pending.timeout = timeoutScheduler.scheduleDirect(new Runnable() {
+        @Override public void run() {
+          onTimeout(pending);
+        }
+      }, pending.timeoutMillis, TimeUnit.MILLISECONDS);
+
+      // Write queue of the connection keeps the order requests are subscribed in.
+      connection.sendAsync(pending.request).subscribe(new CompletableObserver() {
+        @Override public void onSubscribe(Disposable d) {
+        }
+
+        @Override public void onComplete() {
+        }
+
+        @Override public void onError(Throwable e) {
+          onFailure(pending, e);
+        }
+      });
+    }
+  }
+
+  private void onResponse(byte[] frame) {
+    Pending matched = null;
+    synchronized (this) {
+      for (int i = 0; i < outstanding.size(); i++) {
+        if (correlator.matches(outstanding.get(i).request, frame)) {
+          matched = outstanding.remove(i);
+          matched.timeout.dispose();
+          dispatch();
+          break;
+        }
+      }
+    }
+
+    if (matched == null) {
+      unsolicited.onNext(frame);
+    } else if (!matched.cancelled) {
+      matched.emitter.onSuccess(frame);
+    }
+  }
+
+  private void onTimeout(Pending pending) {
+    onFailure(pending, new TimeoutException("No response in " + pending.timeoutMillis + " ms"));
+  }
+
+  private void onFailure(Pending pending, Throwable error) {
+    synchronized (this) {
+      if (!outstanding.remove(pending)) return;
+      pending.timeout.dispose();
+      dispatch();
+    }
+
+    pending.emitter.tryOnError(error);
+  }
+
+  private synchronized void onCancel(Pending pending) {
+    pending.cancelled = true;
+    waiting.remove(pending);
+  }
+
+  private void close(Throwable error) {
+    List<Pending> failed = new ArrayList<>();
+    synchronized (this) {
+      if (closed != null) return;
+      closed = error;
+
+      failed.addAll(outstanding);
+      failed.addAll(waiting);
+      outstanding.clear();
+      waiting.clear();
+    }
+
+    for (Pending pending : failed) {
+      if (pending.timeout != null) {
+        pending.timeout.dispose();
+      }
+      pending.emitter.tryOnError(error);
+    }
+  }
+}
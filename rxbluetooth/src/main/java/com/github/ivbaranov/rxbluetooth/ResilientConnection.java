@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import androidx.annotation.Nullable;
+import com.github.ivbaranov.rxbluetooth.decoders.FrameDecoder;
+import com.github.ivbaranov.rxbluetooth.events.AclEvent;
+import com.github.ivbaranov.rxbluetooth.exceptions.ConnectionClosedException;
+import com.github.ivbaranov.rxbluetooth.transport.BluetoothSocketTransport;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.BehaviorSubject;
+import java.security.InvalidParameterException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.reactivestreams.Publisher;
+
+/**
+ * Client connection to a device which reconnects when the connection is lost, waiting between
+ * attempts according to {@link ReconnectPolicy}.
+ *
+ * <p>Connection is established when {@link #observeFrames()} is subscribed and closed once all
+ * its subscribers are gone. Data stream survives reconnects and only fails when the policy gives
+ * up.
+ */
+public final class ResilientConnection {
+
+  public enum State {
+    /** Not connected and not trying to. */
+    DISCONNECTED,
+    /** Connection attempt is in progress. */
+    CONNECTING,
+    /** Connected, data is flowing. */
+    CONNECTED,
+    /** Waiting before the next connection attempt. */
+    WAITING
+  }
+
+  private final RxBluetooth rxBluetooth;
+  private final BluetoothDevice bluetoothDevice;
+  private final UUID uuid;
+  private final ReconnectPolicy policy;
+  private final boolean reconnectOnAcl;
+  private final Callable<? extends FrameDecoder> decoderFactory;
+
+  private final BehaviorSubject<State> state = BehaviorSubject.createDefault(State.DISCONNECTED);
+  // Consecutive failed connection attempts, losing an established connection isn't one of them.
+  private final AtomicInteger failedAttempts = new AtomicInteger();
+  // Reconnect attempts since the connection was last established, which the delay grows with.
+  private final AtomicInteger reconnects = new AtomicInteger();
+  private final ConnectionMetrics metrics = new ConnectionMetrics();
+  private final Random random = new Random();
+  private final Flowable<byte[]> frames;
+
+  private volatile BluetoothConnection connection;
+  private volatile boolean wasConnected;
+
+  /**
+   * Creates connection with {@link ReconnectPolicy#DEFAULT} policy, which emits data as chunks
+   * of bytes.
+   *
+   * @param rxBluetooth RxBluetooth used to connect
+   * @param bluetoothDevice bluetooth device to connect
+   * @param uuid uuid for SDP record
+   */
+  public ResilientConnection(RxBluetooth rxBluetooth, BluetoothDevice bluetoothDevice,
+      UUID uuid) {
+    this(rxBluetooth, bluetoothDevice, uuid, ReconnectPolicy.DEFAULT, false, null);
+  }
+
+  /**
+   * @param rxBluetooth RxBluetooth used to connect
+   * @param bluetoothDevice bluetooth device to connect
+   * @param uuid uuid for SDP record
+   * @param policy delays between connection attempts
+   * @param reconnectOnAcl if true, waiting is cut short once ACL connection to the device is
+   * established, see {@link RxBluetooth#observeAclEvent()}
+   * @param decoderFactory creates decoder per connection to emit data as frames. If null, data is
+   * emitted as chunks of bytes.
+   */
+  public ResilientConnection(RxBluetooth rxBluetooth, BluetoothDevice bluetoothDevice, UUID uuid,
+      ReconnectPolicy policy, boolean reconnectOnAcl,
+      @Nullable Callable<? extends FrameDecoder> decoderFactory) {
+    if (rxBluetooth == null || bluetoothDevice == null || uuid == null || policy == null) {
+      throw new InvalidParameterException("Arguments can't be null");
+    }
+
+    this.rxBluetooth = rxBluetooth;
+    this.bluetoothDevice = bluetoothDevice;
+    this.uuid = uuid;
+    this.policy = policy;
+    this.reconnectOnAcl = reconnectOnAcl;
+    this.decoderFactory = decoderFactory;
+    this.frames = Flowable.defer(new Callable<Publisher<byte[]>>() {
+      @Override public Publisher<byte[]> call() {
+        return connect().flatMapPublisher(new Function<BluetoothConnection, Publisher<byte[]>>() {
+          @Override public Publisher<byte[]> apply(BluetoothConnection connection)
+              throws Exception {
+            return data(connection);
+          }
+        });
+      }
+    }).retryWhen(new Function<Flowable<Throwable>, Publisher<Long>>() {
+      @Override public Publisher<Long> apply(Flowable<Throwable> errors) {
+        return errors.flatMap(new Function<Throwable, Publisher<Long>>() {
+          @Override public Publisher<Long> apply(Throwable error) {
+            return retry(error);
+          }
+        });
+      }
+    }).doFinally(new Action() {
+      @Override public void run() {
+        close();
+      }
+    }).share();
+  }
+
+  /**
+   * Observes data of the connection across reconnects. Subscribing connects to the device.
+   *
+   * @return RxJava Observable with chunks of bytes or frames, depending on how the connection
+   * was created. Notifies observers with the last connection error via {@code onError()} once the
+   * policy runs out of attempts.
+   */
+  public Flowable<byte[]> observeFrames() {
+    return frames;
+  }
+
+  /**
+   * Observes state of the connection. Emits current state on subscription.
+   *
+   * @return RxJava Observable with {@link State}
+   */
+  public Observable<State> observeState() {
+    return state.distinctUntilChanged();
+  }
+
+  /**
+   * Returns current connection, or null if not connected.
+   *
+   * @return current connection
+   */
+  @Nullable public BluetoothConnection getConnection() {
+    BluetoothConnection connection = this.connection;
+    return connection != null && connection.isConnected() ? connection : null;
+  }
+
+  /**
+   * Returns how many times connection was re-established after it had been lost.
+   *
+   * @return amount of reconnects
+   */
+  public int getReconnectCount() {
+    return (int) metrics.getReconnectCount();
+  }
+
+  /**
+   * Returns counters accumulated by all connections made so far.
+   *
+   * @return snapshot of the counters
+   * @see BluetoothConnection#getStats()
+   */
+  public ConnectionStats getStats() {
+    BluetoothConnection connection = this.connection;
+    return connection != null ? connection.getStats() : metrics.snapshot(0);
+  }
+
+  /**
+   * Observes counters accumulated by all connections made so far.
+   *
+   * @param period time between snapshots
+   * @param unit time unit of {@code period}
+   * @return RxJava Observable with {@link ConnectionStats}, emitted on the computation scheduler
+   * @see BluetoothConnection#observeStats(long, TimeUnit)
+   */
+  public Flowable<ConnectionStats> observeStats(long period, TimeUnit unit) {
+    return Flowable.interval(period, unit).onBackpressureDrop().map(
+        new Function<Long, ConnectionStats>() {
+          @Override public ConnectionStats apply(Long tick) {
+            return getStats();
+          }
+        });
+  }
+
+  /**
+   * Send array of bytes using current connection.
+   *
+   * @param bytes data to send
+   * @return true if success, false if there was error occurred or disconnected
+   */
+  public boolean send(byte[] bytes) {
+    BluetoothConnection connection = getConnection();
+    return connection != null && connection.send(bytes);
+  }
+
+  /**
+   * Queue array of bytes to be sent using current connection.
+   *
+   * @param bytes data to send
+   * @return Completable which completes once the data is flushed, or notifies observers with
+   * {@link ConnectionClosedException} via {@code onError()} if not connected
+   * @see BluetoothConnection#sendAsync(byte[])
+   */
+  public Completable sendAsync(final byte[] bytes) {
+    return Completable.defer(new Callable<Completable>() {
+      @Override public Completable call() {
+        BluetoothConnection connection = getConnection();
+        if (connection == null) {
+          return Completable.error(new ConnectionClosedException("Not connected", null));
+        }
+        return connection.sendAsync(bytes);
+      }
+    });
+  }
+
+  private Single<BluetoothConnection> connect() {
+    state.onNext(State.CONNECTING);
+    return rxBluetooth.connectAsClient(bluetoothDevice, uuid)
+        .subscribeOn(Schedulers.io())
+        .map(new Function<BluetoothSocket, BluetoothConnection>() {
+          @Override public BluetoothConnection apply(BluetoothSocket socket) throws Exception {
+            BluetoothConnection connection = new BluetoothConnection(
+                new BluetoothSocketTransport(socket), null, null, metrics);
+            ResilientConnection.this.connection = connection;
+            failedAttempts.set(0);
+            reconnects.set(0);
+            if (wasConnected) {
+              metrics.onReconnect();
+            }
+            wasConnected = true;
+            state.onNext(State.CONNECTED);
+            return connection;
+          }
+        });
+  }
+
+  private Flowable<byte[]> data(BluetoothConnection connection) throws Exception {
+    if (decoderFactory == null) {
+      return connection.observeChunkStream();
+    }
+    return connection.observeFrames(decoderFactory.call());
+  }
+
+  private Publisher<Long> retry(Throwable error) {
+    // Connection is set only once connected, so the error either closed it or failed the connect.
+    boolean lost = connection != null;
+    closeConnection();
+
+    int failed = lost ? failedAttempts.get() : failedAttempts.incrementAndGet();
+    if (!policy.shouldRetry(failed)) {
+      return Flowable.error(error);
+    }
+
+    state.onNext(State.WAITING);
+    Flowable<Long> timer = Flowable.timer(policy.delayMillis(reconnects.incrementAndGet(), random),
+        TimeUnit.MILLISECONDS);
+    if (!reconnectOnAcl) {
+      return timer;
+    }
+
+    Flowable<Long> aclConnected = rxBluetooth.observeAclEvent()
+        .filter(new Predicate<AclEvent>() {
+          @Override public boolean test(AclEvent event) {
+            return BluetoothDevice.ACTION_ACL_CONNECTED.equals(event.getAction())
+                && bluetoothDevice.equals(event.getBluetoothDevice());
+          }
+        })
+        .map(new Function<AclEvent, Long>() {
+          @Override public Long apply(AclEvent event) {
+            return 0L;
+          }
+        })
+        .toFlowable(BackpressureStrategy.LATEST);
+    return timer.ambWith(aclConnected).take(1);
+  }
+
+  private void closeConnection() {
+    BluetoothConnection connection = this.connection;
+    this.connection = null;
+    if (connection != null) {
+      connection.closeConnection();
+    }
+  }
+
+  private void close() {
+    closeConnection();
+    failedAttempts.set(0);
+    reconnects.set(0);
+    wasConnected = false;
+    state.onNext(State.DISCONNECTED);
+  }
+}
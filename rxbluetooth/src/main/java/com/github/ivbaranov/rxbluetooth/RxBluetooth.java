@@ -17,17 +17,19 @@ package com.github.ivbaranov.rxbluetooth;
 
 import android.app.Activity;
 import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothClass;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothProfile;
 import android.bluetooth.BluetoothServerSocket;
 import android.bluetooth.BluetoothSocket;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.location.LocationManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.Parcelable;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
@@ -35,37 +37,130 @@ import androidx.fragment.app.Fragment;
 import android.text.TextUtils;
 import com.github.ivbaranov.rxbluetooth.events.AclEvent;
 import com.github.ivbaranov.rxbluetooth.events.BondStateEvent;
+import com.github.ivbaranov.rxbluetooth.events.ConnectAttemptEvent;
 import com.github.ivbaranov.rxbluetooth.events.ConnectionStateEvent;
+import com.github.ivbaranov.rxbluetooth.events.DiscoveredDevice;
 import com.github.ivbaranov.rxbluetooth.events.ServiceEvent;
 import com.github.ivbaranov.rxbluetooth.exceptions.GetProfileProxyException;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.SingleEmitter;
 import io.reactivex.SingleOnSubscribe;
-import io.reactivex.android.MainThreadDisposable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static android.Manifest.permission.ACCESS_COARSE_LOCATION;
 import static android.location.LocationManager.GPS_PROVIDER;
 import static android.location.LocationManager.NETWORK_PROVIDER;
 import static android.os.Build.VERSION.SDK_INT;
+import static com.github.ivbaranov.rxbluetooth.Utils.createInsecureRfcommSocket;
 import static com.github.ivbaranov.rxbluetooth.Utils.createRfcommSocket;
+import static com.github.ivbaranov.rxbluetooth.Utils.isRfcommSocketSupported;
 
 /**
  * Enables clients to listen to bluetooth events using RxJava Observables.
  */
 public final class RxBluetooth {
+  private static final String EVENT_THREAD_NAME = "RxBluetooth-Events";
+  private static final int DEFAULT_DEVICE_CACHE_SIZE = 256;
+
   BluetoothAdapter bluetoothAdapter;
   Context context;
+  BroadcastHub broadcastHub;
+  Scheduler eventScheduler;
+  int clientConnects;
+  final BehaviorSubject<Boolean> connecting = BehaviorSubject.createDefault(false);
+  final Subject<ConnectAttemptEvent> connectAttempts =
+      PublishSubject.<ConnectAttemptEvent>create().toSerialized();
+  volatile ConnectOptions connectOptions = ConnectOptions.DEFAULT;
+  int discoverySuspends;
+  final ConcurrentMap<String, ConnectCandidate> preferredCandidates = new ConcurrentHashMap<>();
+  boolean discoveryWasRunning;
 
+  /**
+   * Creates RxBluetooth which receives broadcasts, and emits events derived from them, on the main
+   * thread.
+   *
+   * @param context context to register broadcast receivers with
+   */
   public RxBluetooth(Context context) {
+    this(context, null);
+  }
+
+  /**
+   * Creates RxBluetooth which receives broadcasts on {@code eventLooper}. Intents are parsed and
+   * events are emitted on its thread, so heavy streams such as {@link #observeDevices()} during
+   * crowded discovery don't load the main thread.
+   *
+   * @param context context to register broadcast receivers with
+   * @param eventLooper looper to receive broadcasts on, e.g. one created by {@link
+   * #newEventLooper()}. If null, broadcasts are received on the main thread.
+   * @see #getEventScheduler()
+   */
+  public RxBluetooth(Context context, @Nullable Looper eventLooper) {
     this.bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
     this.context = context;
+    if (eventLooper != null) {
+      this.broadcastHub = new BroadcastHub(context, new Handler(eventLooper));
+      this.eventScheduler = AndroidSchedulers.from(eventLooper);
+    } else {
+      this.broadcastHub = new BroadcastHub(context, null);
+      this.eventScheduler = AndroidSchedulers.mainThread();
+    }
+  }
+
+  /**
+   * Starts a background thread with a looper to receive broadcasts on. The thread runs until
+   * the looper is quit.
+   *
+   * @return looper of the started thread
+   * @see #RxBluetooth(Context, Looper)
+   */
+  public static Looper newEventLooper() {
+    HandlerThread thread = new HandlerThread(EVENT_THREAD_NAME);
+    thread.start();
+    return thread.getLooper();
+  }
+
+  /**
+   * Returns scheduler of the thread broadcast events are emitted on. Hop back to it with {@code
+   * observeOn()} to keep downstream work on the event thread.
+   *
+   * @return scheduler of the event looper, or main thread scheduler if there is none
+   */
+  public Scheduler getEventScheduler() {
+    return eventScheduler;
   }
 
   /**
@@ -243,25 +338,69 @@ public final class RxBluetooth {
    * @return RxJava Observable with BluetoothDevice found
    */
   public Observable<BluetoothDevice> observeDevices() {
-    final IntentFilter filter = new IntentFilter(BluetoothDevice.ACTION_FOUND);
-    return Observable.create(new ObservableOnSubscribe<BluetoothDevice>() {
-      @Override public void subscribe(@NonNull final ObservableEmitter<BluetoothDevice> emitter)
-          throws Exception {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
-            String action = intent.getAction();
-            if (action.equals(BluetoothDevice.ACTION_FOUND)) {
-              BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
-              emitter.onNext(device);
-            }
+    return broadcastHub.observe(BluetoothDevice.ACTION_FOUND)
+        .map(new Function<Intent, BluetoothDevice>() {
+          @Override public BluetoothDevice apply(Intent intent) {
+            return intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
           }
-        };
+        });
+  }
+
+  /**
+   * Observes Bluetooth devices found while discovering, along with their signal strength, name and
+   * class. Remembers up to 256 devices seen during the last five minutes.
+   *
+   * @param mode which sightings of a device to emit
+   * @return RxJava Observable with {@link DiscoveredDevice}
+   * @see #observeDiscoveredDevices(DiscoveryMode, int, long, TimeUnit)
+   */
+  public Observable<DiscoveredDevice> observeDiscoveredDevices(DiscoveryMode mode) {
+    return observeDiscoveredDevices(mode, DEFAULT_DEVICE_CACHE_SIZE, 5, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Observes Bluetooth devices found while discovering, along with their signal strength, name and
+   * class. Every subscriber keeps its own cache of devices, keyed by address, to decide which
+   * sightings to emit.
+   *
+   * @param mode which sightings of a device to emit
+   * @param maxDevices maximum amount of devices remembered, least recently seen are forgotten first
+   * @param ttl time after which a device which wasn't seen again is forgotten and its next sighting
+   * is emitted as new
+   * @param unit time unit of {@code ttl}
+   * @return RxJava Observable with {@link DiscoveredDevice}
+   */
+  public Observable<DiscoveredDevice> observeDiscoveredDevices(final DiscoveryMode mode,
+      final int maxDevices, final long ttl, final TimeUnit unit) {
+    if (mode == null) {
+      throw new InvalidParameterException("Discovery mode can't be null");
+    }
+    if (maxDevices <= 0) {
+      throw new InvalidParameterException("Amount of devices should be positive");
+    }
+    if (ttl <= 0) {
+      throw new InvalidParameterException("Time to live should be positive");
+    }
+
+    final Observable<DiscoveredDevice> sightings = broadcastHub.observe(
+        BluetoothDevice.ACTION_FOUND).map(new Function<Intent, DiscoveredDevice>() {
+          @Override public DiscoveredDevice apply(Intent intent) {
+            BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
+            int rssi = intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, Short.MIN_VALUE);
+            String name = intent.getStringExtra(BluetoothDevice.EXTRA_NAME);
+            BluetoothClass bluetoothClass = intent.getParcelableExtra(BluetoothDevice.EXTRA_CLASS);
 
-        context.registerReceiver(receiver, filter);
+            return new DiscoveredDevice(device, rssi, name, bluetoothClass,
+                System.currentTimeMillis());
+          }
+        });
 
-        emitter.setDisposable(new MainThreadDisposable() {
-          @Override protected void onDispose() {
-            context.unregisterReceiver(receiver);
+    return Observable.defer(new Callable<ObservableSource<DiscoveredDevice>>() {
+      @Override public ObservableSource<DiscoveredDevice> call() {
+        final DeviceCache cache = new DeviceCache(maxDevices, unit.toNanos(ttl));
+        return sightings.filter(new Predicate<DiscoveredDevice>() {
+          @Override public boolean test(DiscoveredDevice device) {
+            return cache.put(device, mode);
           }
         });
       }
@@ -275,28 +414,91 @@ public final class RxBluetooth {
    * @return RxJava Observable with DiscoveryState
    */
   public Observable<String> observeDiscovery() {
-    final IntentFilter filter = new IntentFilter();
-    filter.addAction(BluetoothAdapter.ACTION_DISCOVERY_STARTED);
-    filter.addAction(BluetoothAdapter.ACTION_DISCOVERY_FINISHED);
-
-    return Observable.create(new ObservableOnSubscribe<String>() {
-      @Override public void subscribe(@NonNull final ObservableEmitter<String> emitter)
-          throws Exception {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
-            emitter.onNext(intent.getAction());
+    return broadcastHub.observe(BluetoothAdapter.ACTION_DISCOVERY_STARTED,
+        BluetoothAdapter.ACTION_DISCOVERY_FINISHED).map(new Function<Intent, String>() {
+          @Override public String apply(Intent intent) {
+            return intent.getAction();
           }
-        };
+        });
+  }
+
+  /**
+   * Keeps discovering until disposed: starts discovery, lets it run until it finishes or {@code
+   * scanTime} passes, waits {@code idleTime} and starts it again. Discovery is cancelled while
+   * {@code connectAsClient()} of this instance is connecting, as it slows connection setup down,
+   * and is resumed once all connects are done. Discovery is cancelled on dispose.
+   *
+   * <p>Devices found are delivered as usual, subscribe to {@link #observeDevices()} or {@link
+   * #observeDiscoveredDevices(DiscoveryMode)} to receive them.
+   *
+   * @param scanTime maximum time of a single discovery. Classic discovery stops on its own after
+   * about 12 seconds.
+   * @param idleTime time to wait between discoveries, zero to restart immediately
+   * @param unit time unit of {@code scanTime} and {@code idleTime}
+   * @return RxJava Observable with DiscoveryState, see {@link #observeDiscovery()}
+   */
+  public Observable<String> observeContinuousDiscovery(final long scanTime, final long idleTime,
+      final TimeUnit unit) {
+    if (scanTime <= 0) {
+      throw new InvalidParameterException("Scan time should be positive");
+    }
+    if (idleTime < 0) {
+      throw new InvalidParameterException("Idle time can't be negative");
+    }
+
+    final Observable<String> discovery = observeDiscovery();
+    final Completable cancel = Completable.fromAction(new Action() {
+      @Override public void run() {
+        if (bluetoothAdapter.isDiscovering()) {
+          bluetoothAdapter.cancelDiscovery();
+        }
+      }
+    });
 
-        context.registerReceiver(receiver, filter);
+    Completable driver = Completable.defer(new Callable<CompletableSource>() {
+      @Override public CompletableSource call() {
+        final AtomicBoolean started = new AtomicBoolean();
 
-        emitter.setDisposable(new MainThreadDisposable() {
-          @Override protected void onDispose() {
-            context.unregisterReceiver(receiver);
+        // Listens for the end of discovery before starting it, so that the end isn't missed.
+        // Only the end following a start counts, cancelling the previous scan broadcasts its end
+        // asynchronously, possibly after this scan has started.
+        Completable scan = discovery.skipWhile(new Predicate<String>() {
+          @Override public boolean test(String action) {
+            return !BluetoothAdapter.ACTION_DISCOVERY_STARTED.equals(action);
           }
-        });
+        }).filter(new Predicate<String>() {
+          @Override public boolean test(String action) {
+            return BluetoothAdapter.ACTION_DISCOVERY_FINISHED.equals(action);
+          }
+        }).firstElement().ignoreElement().mergeWith(Completable.fromAction(new Action() {
+          @Override public void run() {
+            started.set(true);
+            bluetoothAdapter.startDiscovery();
+          }
+        }));
+        final Completable cycle = scan.ambWith(Completable.timer(scanTime, unit))
+            .andThen(cancel)
+            .andThen(Completable.timer(idleTime, unit))
+            .repeat();
+
+        return connecting.distinctUntilChanged()
+            .switchMapCompletable(new Function<Boolean, Completable>() {
+              @Override public Completable apply(Boolean busy) {
+                return busy ? cancel : cycle;
+              }
+            })
+            .doFinally(new Action() {
+              @Override public void run() {
+                // Leaves alone discovery started by someone else.
+                if (started.get() && bluetoothAdapter.isDiscovering()) {
+                  bluetoothAdapter.cancelDiscovery();
+                }
+              }
+            });
       }
     });
+
+    return discovery.mergeWith(driver);
   }
 
   /**
@@ -309,27 +511,12 @@ public final class RxBluetooth {
    * @return RxJava Observable with BluetoothState
    */
   public Observable<Integer> observeBluetoothState() {
-    final IntentFilter filter = new IntentFilter();
-    filter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
-
-    return Observable.create(new ObservableOnSubscribe<Integer>() {
-      @Override public void subscribe(@NonNull final ObservableEmitter<Integer> emitter)
-          throws Exception {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
-            emitter.onNext(bluetoothAdapter.getState());
-          }
-        };
-
-        context.registerReceiver(receiver, filter);
-
-        emitter.setDisposable(new MainThreadDisposable() {
-          @Override protected void onDispose() {
-            context.unregisterReceiver(receiver);
+    return broadcastHub.observe(BluetoothAdapter.ACTION_STATE_CHANGED)
+        .map(new Function<Intent, Integer>() {
+          @Override public Integer apply(Intent intent) {
+            return bluetoothAdapter.getState();
           }
         });
-      }
-    });
   }
 
   /**
@@ -341,27 +528,12 @@ public final class RxBluetooth {
    * @return RxJava Observable with scan mode
    */
   public Observable<Integer> observeScanMode() {
-    final IntentFilter filter = new IntentFilter();
-    filter.addAction(BluetoothAdapter.ACTION_SCAN_MODE_CHANGED);
-
-    return Observable.create(new ObservableOnSubscribe<Integer>() {
-      @Override public void subscribe(@NonNull final ObservableEmitter<Integer> emitter)
-          throws Exception {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
-            emitter.onNext(bluetoothAdapter.getScanMode());
-          }
-        };
-
-        context.registerReceiver(receiver, filter);
-
-        emitter.setDisposable(new MainThreadDisposable() {
-          @Override protected void onDispose() {
-            context.unregisterReceiver(receiver);
+    return broadcastHub.observe(BluetoothAdapter.ACTION_SCAN_MODE_CHANGED)
+        .map(new Function<Intent, Integer>() {
+          @Override public Integer apply(Intent intent) {
+            return bluetoothAdapter.getScanMode();
           }
         });
-      }
-    });
   }
 
   /**
@@ -413,15 +585,9 @@ public final class RxBluetooth {
    * @return RxJava Observable with {@link ConnectionStateEvent}
    */
   public Observable<ConnectionStateEvent> observeConnectionState() {
-    final IntentFilter filter = new IntentFilter();
-    filter.addAction(BluetoothAdapter.ACTION_CONNECTION_STATE_CHANGED);
-
-    return Observable.create(new ObservableOnSubscribe<ConnectionStateEvent>() {
-      @Override
-      public void subscribe(@NonNull final ObservableEmitter<ConnectionStateEvent> emitter)
-          throws Exception {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
+    return broadcastHub.observe(BluetoothAdapter.ACTION_CONNECTION_STATE_CHANGED)
+        .map(new Function<Intent, ConnectionStateEvent>() {
+          @Override public ConnectionStateEvent apply(Intent intent) {
             int status = intent.getIntExtra(BluetoothAdapter.EXTRA_CONNECTION_STATE,
                 BluetoothAdapter.STATE_DISCONNECTED);
             int previousStatus =
@@ -429,19 +595,9 @@ public final class RxBluetooth {
                     BluetoothAdapter.STATE_DISCONNECTED);
             BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
 
-            emitter.onNext(new ConnectionStateEvent(status, previousStatus, device));
-          }
-        };
-
-        context.registerReceiver(receiver, filter);
-
-        emitter.setDisposable(new MainThreadDisposable() {
-          @Override protected void onDispose() {
-            context.unregisterReceiver(receiver);
+            return new ConnectionStateEvent(status, previousStatus, device);
           }
         });
-      }
-    });
   }
 
   /**
@@ -450,33 +606,18 @@ public final class RxBluetooth {
    * @return RxJava Observable with {@link BondStateEvent}
    */
   public Observable<BondStateEvent> observeBondState() {
-    final IntentFilter filter = new IntentFilter();
-    filter.addAction(BluetoothDevice.ACTION_BOND_STATE_CHANGED);
-
-    return Observable.create(new ObservableOnSubscribe<BondStateEvent>() {
-      @Override public void subscribe(@NonNull final ObservableEmitter<BondStateEvent> emitter)
-          throws Exception {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
+    return broadcastHub.observe(BluetoothDevice.ACTION_BOND_STATE_CHANGED)
+        .map(new Function<Intent, BondStateEvent>() {
+          @Override public BondStateEvent apply(Intent intent) {
             int state =
                 intent.getIntExtra(BluetoothDevice.EXTRA_BOND_STATE, BluetoothDevice.BOND_NONE);
             int previousState = intent.getIntExtra(BluetoothDevice.EXTRA_PREVIOUS_BOND_STATE,
                 BluetoothDevice.BOND_NONE);
             BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
 
-            emitter.onNext(new BondStateEvent(state, previousState, device));
-          }
-        };
-
-        context.registerReceiver(receiver, filter);
-
-        emitter.setDisposable(new MainThreadDisposable() {
-          @Override protected void onDispose() {
-            context.unregisterReceiver(receiver);
+            return new BondStateEvent(state, previousState, device);
           }
         });
-      }
-    });
   }
 
   /**
@@ -552,6 +693,91 @@ public final class RxBluetooth {
     });
   }
 
+  /**
+   * Opens {@link BluetoothServerSocket} and keeps accepting connection requests on it until
+   * disposed, serving up to {@code maxClients} clients at the same time. Once the limit is
+   * reached, new clients are accepted only after one of the connections is closed. Disposing
+   * closes the server socket and all connections it accepted. Notifies observers with {@link
+   * IOException} via {@code onError()} if the server socket fails.
+   *
+   * @param name service name for SDP record
+   * @param uuid uuid for SDP record
+   * @param secure connection security status
+   * @param maxClients maximum amount of clients connected at the same time
+   * @return RxJava Observable with {@link BluetoothConnection} per client, emitted on the
+   * accepting thread
+   */
+  public Observable<BluetoothConnection> observeServerConnections(final String name,
+      final UUID uuid, final boolean secure, final int maxClients) {
+    if (maxClients <= 0) {
+      throw new InvalidParameterException("Amount of clients should be positive");
+    }
+
+    return Observable.create(new ObservableOnSubscribe<BluetoothConnection>() {
+      @Override public void subscribe(@NonNull final ObservableEmitter<BluetoothConnection> emitter)
+          throws Exception {
+        final BluetoothServerSocket bluetoothServerSocket;
+        if (secure)
+          bluetoothServerSocket = bluetoothAdapter.listenUsingRfcommWithServiceRecord(name, uuid);
+        else
+          bluetoothServerSocket =
+              bluetoothAdapter.listenUsingInsecureRfcommWithServiceRecord(name, uuid);
+
+        final Set<BluetoothConnection> clients =
+            Collections.newSetFromMap(new ConcurrentHashMap<BluetoothConnection, Boolean>());
+        final Semaphore slots = new Semaphore(maxClients);
+        emitter.setCancellable(new Cancellable() {
+          @Override public void cancel() {
+            // Unblocks accept(), closed connections free the slots the loop could wait for.
+            Utils.close(bluetoothServerSocket);
+            for (BluetoothConnection client : clients) {
+              client.closeConnection();
+            }
+          }
+        });
+
+        try {
+          while (true) {
+            slots.acquire();
+            if (emitter.isDisposed()) return;
+
+            BluetoothConnection connection;
+            try {
+              connection = new BluetoothConnection(bluetoothServerSocket.accept());
+            } catch (IOException e) {
+              emitter.tryOnError(e);
+              return;
+            } catch (Exception e) {
+              // Couldn't open streams of the client, the socket is closed already.
+              slots.release();
+              continue;
+            }
+
+            final BluetoothConnection client = connection;
+            clients.add(client);
+            client.setOnClose(new Runnable() {
+              @Override public void run() {
+                if (clients.remove(client)) {
+                  slots.release();
+                }
+              }
+            });
+
+            if (emitter.isDisposed()) {
+              client.closeConnection();
+            } else {
+              emitter.onNext(client);
+            }
+          }
+        } catch (InterruptedException ignored) {
+          // Disposed.
+        } finally {
+          Utils.close(bluetoothServerSocket);
+        }
+      }
+    }).subscribeOn(Schedulers.io());
+  }
+
   /**
    * Create connection to {@link BluetoothDevice} and returns a connected {@link BluetoothSocket}
    * on successful connection. Notifies observers with {@link IOException} via {@code onError()}.
@@ -576,30 +802,7 @@ public final class RxBluetooth {
      */
     public Single<BluetoothSocket> connectAsClient(final BluetoothDevice bluetoothDevice,
       final UUID uuid, final boolean secure) {
-    return Single.create(new SingleOnSubscribe<BluetoothSocket>() {
-      @Override public void subscribe(@NonNull SingleEmitter<BluetoothSocket> emitter) {
-        BluetoothSocket bluetoothSocket = null;
-        try {
-          if (secure)
-            bluetoothSocket = bluetoothDevice.createRfcommSocketToServiceRecord(uuid);
-          else
-            bluetoothSocket = bluetoothDevice.createInsecureRfcommSocketToServiceRecord(uuid);
-          bluetoothSocket.connect();
-          emitter.onSuccess(bluetoothSocket);
-        } catch (IOException e) {
-          if (bluetoothSocket != null) {
-            try {
-              bluetoothSocket.close();
-            } catch (IOException suppressed) {
-              if (SDK_INT >= 19) {
-                e.addSuppressed(suppressed);
-              }
-            }
-          }
-          emitter.onError(e);
-        }
-      }
-    });
+    return connectAsClient(bluetoothDevice, uuid, -1, secure);
   }
 
   /**
@@ -614,14 +817,180 @@ public final class RxBluetooth {
    */
   public Single<BluetoothSocket> connectAsClient(final BluetoothDevice bluetoothDevice,
       final int channel) {
-    return Single.create(new SingleOnSubscribe<BluetoothSocket>() {
+    return connectAsClient(bluetoothDevice, channel, true);
+  }
+
+  /**
+   * Create connection to {@link BluetoothDevice} via createRfcommSocket or
+   * createInsecureRfcommSocket and returns a connected {@link BluetoothSocket} on successful
+   * connection. Both are looked up once, see {@link #isRfcommChannelSupported(boolean)}.
+   * Note: these are not public API and hence this might break in the future.
+   * Notifies observers with {@link IOException} or {@link UnsupportedOperationException} if the
+   * platform doesn't support it via {@code onError()}.
+   *
+   * @param bluetoothDevice bluetooth device to connect
+   * @param channel RFCOMM channel to connect to
+   * @param secure connection security status
+   * @return Single with connected {@link BluetoothSocket} on successful connection
+   */
+  public Single<BluetoothSocket> connectAsClient(final BluetoothDevice bluetoothDevice,
+      final int channel, final boolean secure) {
+    return connectAsClient(bluetoothDevice, null, channel, secure);
+  }
+
+  /**
+   * Return true if the platform allows to connect to RFCOMM channels, see {@link
+   * #connectAsClient(BluetoothDevice, int, boolean)}.
+   *
+   * @param secure connection security status
+   * @return true if connects to channels are supported
+   */
+  public boolean isRfcommChannelSupported(boolean secure) {
+    return isRfcommSocketSupported(secure);
+  }
+
+  /**
+   * Create connection to {@link BluetoothDevice} trying {@code candidates} one after another,
+   * until one of them connects. Candidate which connected last time to the device is tried first.
+   * Notifies observers with error of the last candidate via {@code onError()} if none connects.
+   *
+   * @param bluetoothDevice bluetooth device to connect
+   * @param candidates service UUIDs and channels to try
+   * @return Single with connected {@link BluetoothSocket} on successful connection
+   */
+  public Single<BluetoothSocket> connectAsClient(BluetoothDevice bluetoothDevice,
+      List<ConnectCandidate> candidates) {
+    return connectAsClient(bluetoothDevice, candidates, -1);
+  }
+
+  /**
+   * Create connection to {@link BluetoothDevice} racing {@code candidates}: next candidate is
+   * tried once the previous one fails or {@code stagger} after it was started, whichever is first.
+   * First candidate to connect wins, the other connects are aborted. Candidate which connected
+   * last time to the device is tried first. Notifies observers with error of the last candidate
+   * via {@code onError()} if none connects.
+   *
+   * @param bluetoothDevice bluetooth device to connect
+   * @param candidates service UUIDs and channels to try
+   * @param stagger time to give a candidate before trying the next one, zero to try all at once
+   * @param unit time unit of {@code stagger}
+   * @return Single with connected {@link BluetoothSocket} on successful connection
+   */
+  public Single<BluetoothSocket> connectAsClient(BluetoothDevice bluetoothDevice,
+      List<ConnectCandidate> candidates, long stagger, TimeUnit unit) {
+    if (stagger < 0) {
+      throw new InvalidParameterException("Stagger can't be negative");
+    }
+
+    return connectAsClient(bluetoothDevice, candidates, unit.toMillis(stagger));
+  }
+
+  /**
+   * Returns candidate which connected last time to the device with {@code connectAsClient()}
+   * taking candidates.
+   *
+   * @param bluetoothDevice bluetooth device
+   * @return winning candidate, or null if there is none
+   */
+  @Nullable public ConnectCandidate getPreferredCandidate(BluetoothDevice bluetoothDevice) {
+    return preferredCandidates.get(bluetoothDevice.getAddress());
+  }
+
+  private Single<BluetoothSocket> connectAsClient(final BluetoothDevice bluetoothDevice,
+      List<ConnectCandidate> candidates, final long staggerMillis) {
+    if (candidates == null || candidates.isEmpty()) {
+      throw new InvalidParameterException("Candidates can't be empty");
+    }
+
+    final List<ConnectCandidate> ordered = new ArrayList<>(candidates);
+    return Single.defer(new Callable<Single<BluetoothSocket>>() {
+      @Override public Single<BluetoothSocket> call() {
+        final List<ConnectCandidate> order = new ArrayList<>(ordered);
+        ConnectCandidate preferred = preferredCandidates.get(bluetoothDevice.getAddress());
+        if (preferred != null && order.remove(preferred)) {
+          order.add(0, preferred);
+        }
+
+        List<Single<BluetoothSocket>> attempts = new ArrayList<>(order.size());
+        for (ConnectCandidate candidate : order) {
+          attempts.add(connectAsClient(bluetoothDevice, candidate.getUuid(),
+              candidate.getChannel(), candidate.isSecure()).subscribeOn(Schedulers.io()));
+        }
+
+        return new ConnectRace<>(attempts, staggerMillis, Schedulers.computation()).run(
+            new ConnectRace.Winner<BluetoothSocket>() {
+              @Override public void onWin(int index, BluetoothSocket socket) {
+                preferredCandidates.put(bluetoothDevice.getAddress(), order.get(index));
+              }
+
+              @Override public void onLose(BluetoothSocket socket) {
+                Utils.close(socket);
+              }
+            });
+      }
+    });
+  }
+
+  /**
+   * Configures how {@code connectAsClient()} methods connect, e.g. to cancel discovery while
+   * connecting or to limit time of a connect. Applies to connects subscribed after the call.
+   *
+   * @param connectOptions connect options, {@link ConnectOptions#DEFAULT} by default
+   */
+  public void setConnectOptions(ConnectOptions connectOptions) {
+    if (connectOptions == null) {
+      throw new InvalidParameterException("Connect options can't be null");
+    }
+
+    this.connectOptions = connectOptions;
+  }
+
+  /**
+   * Observes client connects made by {@code connectAsClient()} methods, successful or not.
+   *
+   * @return RxJava Observable with {@link ConnectAttemptEvent}, emitted on the connecting thread
+   */
+  public Observable<ConnectAttemptEvent> observeConnectAttempts() {
+    return connectAttempts;
+  }
+
+  private Single<BluetoothSocket> connectAsClient(final BluetoothDevice bluetoothDevice,
+      @Nullable final UUID uuid, final int channel, final boolean secure) {
+    return trackConnect(Single.create(new SingleOnSubscribe<BluetoothSocket>() {
       @Override public void subscribe(@NonNull SingleEmitter<BluetoothSocket> emitter) {
+        // Disposing closes the socket, which is the only way to abort a blocked connect. Once the
+        // socket is delivered it belongs to the subscriber.
+        final AtomicReference<BluetoothSocket> pending = new AtomicReference<>();
+        emitter.setCancellable(new Cancellable() {
+          @Override public void cancel() {
+            Utils.close(pending.getAndSet(null));
+          }
+        });
+
+        ConnectOptions options = connectOptions;
+        if (options.isSuspendDiscovery()) {
+          suspendDiscovery();
+        }
+
+        long start = System.nanoTime();
         BluetoothSocket bluetoothSocket = null;
+        IOException error = null;
         try {
-          bluetoothSocket = createRfcommSocket(bluetoothDevice, channel);
-          bluetoothSocket.connect();
-          emitter.onSuccess(bluetoothSocket);
+          if (uuid == null && secure)
+            bluetoothSocket = createRfcommSocket(bluetoothDevice, channel);
+          else if (uuid == null)
+            bluetoothSocket = createInsecureRfcommSocket(bluetoothDevice, channel);
+          else if (secure)
+            bluetoothSocket = bluetoothDevice.createRfcommSocketToServiceRecord(uuid);
+          else
+            bluetoothSocket = bluetoothDevice.createInsecureRfcommSocketToServiceRecord(uuid);
+          pending.set(bluetoothSocket);
+          if (emitter.isDisposed()) {
+            Utils.close(pending.getAndSet(null));
+          }
+          connect(bluetoothSocket, options.getTimeoutMillis());
         } catch (IOException e) {
+          error = e;
           if (bluetoothSocket != null) {
             try {
               bluetoothSocket.close();
@@ -631,12 +1000,100 @@ public final class RxBluetooth {
               }
             }
           }
-          emitter.onError(e);
+        } finally {
+          if (options.isSuspendDiscovery()) {
+            resumeDiscovery();
+          }
+        }
+
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        connectAttempts.onNext(
+            new ConnectAttemptEvent(bluetoothDevice, uuid, channel, secure, latency, error));
+        if (error != null) {
+          emitter.tryOnError(error);
+        } else if (pending.getAndSet(null) != null) {
+          emitter.onSuccess(bluetoothSocket);
         }
       }
+    }));
+  }
+
+  /**
+   * Connects the socket, closing it if connect takes longer than {@code timeoutMillis}. Closing
+   * the socket is the only way to interrupt a blocked connect.
+   */
+  private static void connect(final BluetoothSocket bluetoothSocket, long timeoutMillis)
+      throws IOException {
+    if (timeoutMillis <= 0) {
+      bluetoothSocket.connect();
+      return;
+    }
+
+    final AtomicBoolean timedOut = new AtomicBoolean();
+    Disposable timeout = Schedulers.computation().scheduleDirect(new Runnable() {
+      @Override public void run() {
+        timedOut.set(true);
+        Utils.close(bluetoothSocket);
+      }
+    }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+    try {
+      bluetoothSocket.connect();
+    } catch (IOException e) {
+      if (timedOut.get()) {
+        throw timeoutException(e);
+      }
+      throw e;
+    } finally {
+      timeout.dispose();
+    }
+
+    // Connect could have succeeded right when the socket was being closed.
+    if (timedOut.get()) {
+      throw timeoutException(null);
+    }
+  }
+
+  private static SocketTimeoutException timeoutException(@Nullable IOException cause) {
+    SocketTimeoutException exception = new SocketTimeoutException("Connect timed out");
+    exception.initCause(cause);
+    return exception;
+  }
+
+  private synchronized void suspendDiscovery() {
+    if (discoverySuspends++ == 0) {
+      discoveryWasRunning = bluetoothAdapter.isDiscovering();
+    }
+    if (bluetoothAdapter.isDiscovering()) {
+      bluetoothAdapter.cancelDiscovery();
+    }
+  }
+
+  private synchronized void resumeDiscovery() {
+    // Discovery is restarted only once the last of concurrent connects is done.
+    if (--discoverySuspends == 0 && discoveryWasRunning) {
+      discoveryWasRunning = false;
+      bluetoothAdapter.startDiscovery();
+    }
+  }
+
+  private <T> Single<T> trackConnect(Single<T> connect) {
+    return connect.doOnSubscribe(new Consumer<Disposable>() {
+      @Override public void accept(Disposable disposable) {
+        onClientConnect(1);
+      }
+    }).doFinally(new Action() {
+      @Override public void run() {
+        onClientConnect(-1);
+      }
     });
   }
 
+  private synchronized void onClientConnect(int delta) {
+    clientConnects += delta;
+    connecting.onNext(clientConnects > 0);
+  }
+
   /**
    * Observes ACL broadcast actions from {@link BluetoothDevice}. Possible broadcast ACL action
    * values are:
@@ -647,32 +1104,16 @@ public final class RxBluetooth {
    * @return RxJava Observable with {@link AclEvent}
    */
   public Observable<AclEvent> observeAclEvent() {
-    final IntentFilter filter = new IntentFilter();
-    filter.addAction(BluetoothDevice.ACTION_ACL_CONNECTED);
-    filter.addAction(BluetoothDevice.ACTION_ACL_DISCONNECTED);
-    filter.addAction(BluetoothDevice.ACTION_ACL_DISCONNECT_REQUESTED);
-
-    return Observable.create(new ObservableOnSubscribe<AclEvent>() {
-      @Override public void subscribe(@NonNull final ObservableEmitter<AclEvent> emitter)
-          throws Exception {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
+    return broadcastHub.observe(BluetoothDevice.ACTION_ACL_CONNECTED,
+        BluetoothDevice.ACTION_ACL_DISCONNECTED, BluetoothDevice.ACTION_ACL_DISCONNECT_REQUESTED)
+        .map(new Function<Intent, AclEvent>() {
+          @Override public AclEvent apply(Intent intent) {
             String action = intent.getAction();
             BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
 
-            emitter.onNext(new AclEvent(action, device));
-          }
-        };
-
-        context.registerReceiver(receiver, filter);
-
-        emitter.setDisposable(new MainThreadDisposable() {
-          @Override protected void onDispose() {
-            context.unregisterReceiver(receiver);
+            return new AclEvent(action, device);
           }
         });
-      }
-    });
   }
 
     /**
@@ -684,33 +1125,21 @@ public final class RxBluetooth {
 
   @RequiresApi(api = Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
   public Observable<Parcelable[]> observeFetchDeviceUuids(final BluetoothDevice bluetoothDevice) {
-    final IntentFilter filter = new IntentFilter();
-    filter.addAction(BluetoothDevice.ACTION_UUID);
-
-    return Observable.create(new ObservableOnSubscribe<Parcelable[]>() {
-      @Override
-      public void subscribe(@NonNull final ObservableEmitter<Parcelable[]> emitter) {
-        final BroadcastReceiver receiver = new BroadcastReceiver() {
-          @Override public void onReceive(Context context, Intent intent) {
-                  Parcelable[] uuids = intent.getParcelableArrayExtra(BluetoothDevice.EXTRA_UUID);
-                  if (uuids != null) {
-                    emitter.onNext(uuids);
-                  }
-                  emitter.onComplete();
-              }
-        };
-
-        context.registerReceiver(receiver, filter);
-
-        emitter.setDisposable(new MainThreadDisposable() {
-            @Override
-            protected void onDispose() {
-                context.unregisterReceiver(receiver);
-            }
-        });
-
+    // Receiver is registered on subscription, so the request is made only after that.
+    Observable<Parcelable[]> fetch = Completable.fromAction(new Action() {
+      @Override public void run() {
         bluetoothDevice.fetchUuidsWithSdp();
       }
-    });
+    }).toObservable();
+
+    return broadcastHub.observe(BluetoothDevice.ACTION_UUID)
+        .take(1)
+        .flatMap(new Function<Intent, Observable<Parcelable[]>>() {
+          @Override public Observable<Parcelable[]> apply(Intent intent) {
+            Parcelable[] uuids = intent.getParcelableArrayExtra(BluetoothDevice.EXTRA_UUID);
+            return uuids != null ? Observable.just(uuids) : Observable.<Parcelable[]>empty();
+          }
+        })
+        .mergeWith(fetch);
   }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.security.InvalidParameterException;
+
+/**
+ * How {@link BulkTransfer} sends and receives data.
+ */
+public final class TransferOptions {
+
+  /** 4 KB chunks, no checksum, no acknowledgements. */
+  public static final TransferOptions DEFAULT = new TransferOptions(4096, false, 0);
+
+  private final int chunkSize;
+  private final boolean checksum;
+  private final int ackWindow;
+
+  /**
+   * @param chunkSize amount of bytes written and flushed at once. Larger chunks take less calls
+   * per byte, a few RFCOMM frames (990 bytes by default) is usually enough to keep the link busy.
+   * Every chunk but the last one is full, so that both sides count chunks the same way.
+   * @param checksum whether to compute CRC32 of the data transferred
+   * @param ackWindow maximum amount of chunks sent and not yet acknowledged by the receiver, zero
+   * to send without waiting for acknowledgements
+   */
+  public TransferOptions(int chunkSize, boolean checksum, int ackWindow) {
+    if (chunkSize <= 0) {
+      throw new InvalidParameterException("Chunk size should be positive");
+    }
+    if (ackWindow < 0) {
+      throw new InvalidParameterException("Ack window can't be negative");
+    }
+
+    this.chunkSize = chunkSize;
+    this.checksum = checksum;
+    this.ackWindow = ackWindow;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public boolean isChecksum() {
+    return checksum;
+  }
+
+  public int getAckWindow() {
+    return ackWindow;
+  }
+
+  @Override public String toString() {
+    return "TransferOptions{" +
+        "chunkSize=" + chunkSize +
+        ", checksum=" + checksum +
+        ", ackWindow=" + ackWindow +
+        '}';
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a transfer made by {@link BulkTransfer}, emitted after every chunk.
+ */
+public final class TransferProgress {
+
+  /** Total amount of bytes when the length of the source isn't known. */
+  public static final long UNKNOWN_LENGTH = -1;
+  /** Checksum when it isn't computed, see {@link TransferOptions#isChecksum()}. */
+  public static final long NO_CHECKSUM = -1;
+
+  private final long bytesTransferred;
+  private final long totalBytes;
+  private final long elapsedNanos;
+  private final long checksum;
+  private final boolean complete;
+
+  TransferProgress(long bytesTransferred, long totalBytes, long elapsedNanos, long checksum,
+      boolean complete) {
+    this.bytesTransferred = bytesTransferred;
+    this.totalBytes = totalBytes;
+    this.elapsedNanos = elapsedNanos;
+    this.checksum = checksum;
+    this.complete = complete;
+  }
+
+  /** @return amount of bytes sent or received so far */
+  public long getBytesTransferred() {
+    return bytesTransferred;
+  }
+
+  /** @return total amount of bytes to transfer, or {@link #UNKNOWN_LENGTH} */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /** @return transferred part from 0 to 1, or -1 if total amount of bytes isn't known */
+  public float getFraction() {
+    if (totalBytes == UNKNOWN_LENGTH) {
+      return -1;
+    }
+    return totalBytes > 0 ? (float) bytesTransferred / totalBytes : 1;
+  }
+
+  /** @return time since the transfer started */
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+  }
+
+  /** @return average throughput since the transfer started */
+  public long getBytesPerSecond() {
+    return elapsedNanos > 0 ? (long) (bytesTransferred * 1e9 / elapsedNanos) : 0;
+  }
+
+  /** @return CRC32 of the bytes transferred so far, or {@link #NO_CHECKSUM} */
+  public long getChecksum() {
+    return checksum;
+  }
+
+  /** @return true for the last snapshot of a transfer which succeeded */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  @Override public String toString() {
+    return "TransferProgress{" +
+        "bytesTransferred=" + bytesTransferred +
+        ", totalBytes=" + totalBytes +
+        ", elapsedMillis=" + getElapsedMillis() +
+        ", bytesPerSecond=" + getBytesPerSecond() +
+        ", checksum=" + checksum +
+        ", complete=" + complete +
+        '}';
+  }
+}
@@ -2,12 +2,15 @@ package com.github.ivbaranov.rxbluetooth;
 
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothSocket;
+import android.util.Log;
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 final class Utils {
+  private static final String TAG = Utils.class.getName();
+
   static void close(final Closeable closeable) {
     if (closeable != null) {
       try {
@@ -18,15 +21,51 @@ final class Utils {
     }
   }
 
-  @SuppressWarnings("unchecked") static BluetoothSocket createRfcommSocket(
-      final BluetoothDevice device, final int channel) {
+  /**
+   * Hidden {@link BluetoothDevice} methods creating sockets to RFCOMM channels. Looked up once, on
+   * first use, which also logs once if the platform doesn't have them.
+   */
+  private static final class RfcommMethods {
+    static final Method SECURE = find("createRfcommSocket");
+    static final Method INSECURE = find("createInsecureRfcommSocket");
+
+    private static Method find(String name) {
+      try {
+        return BluetoothDevice.class.getMethod(name, Integer.TYPE);
+      } catch (NoSuchMethodException e) {
+        Log.w(TAG, "BluetoothDevice." + name + " is not supported on this platform");
+        return null;
+      }
+    }
+  }
+
+  static boolean isRfcommSocketSupported(boolean secure) {
+    return (secure ? RfcommMethods.SECURE : RfcommMethods.INSECURE) != null;
+  }
+
+  static BluetoothSocket createRfcommSocket(BluetoothDevice device, int channel)
+      throws IOException {
+    return createRfcommSocket(RfcommMethods.SECURE, device, channel);
+  }
+
+  static BluetoothSocket createInsecureRfcommSocket(BluetoothDevice device, int channel)
+      throws IOException {
+    return createRfcommSocket(RfcommMethods.INSECURE, device, channel);
+  }
+
+  private static BluetoothSocket createRfcommSocket(Method method, BluetoothDevice device,
+      int channel) throws IOException {
+    if (method == null) {
+      throw new UnsupportedOperationException("RFCOMM channel sockets are not supported");
+    }
+
     try {
-      Method method = BluetoothDevice.class.getMethod("createRfcommSocket", Integer.TYPE);
       return (BluetoothSocket) method.invoke(device, channel);
-    } catch (final NoSuchMethodException e) {
-      throw new UnsupportedOperationException(e);
     } catch (final InvocationTargetException e) {
-      throw new UnsupportedOperationException(e);
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new UnsupportedOperationException(e.getCause());
     } catch (final IllegalAccessException e) {
       throw new UnsupportedOperationException(e);
     }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.ConnectionClosedException;
+import io.reactivex.CompletableEmitter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of outgoing payloads, written by a dedicated thread. Payloads queued together are
+ * coalesced into batches of up to {@code maxBatchSize} bytes, optionally waiting up to {@code
+ * maxDelay} for more payloads, and every batch is written and flushed at once.
+ */
+final class WriteQueue implements Runnable {
+  private static final NamedThreadFactory WRITER_THREADS =
+      new NamedThreadFactory("RxBluetooth-Writer");
+
+  private static final class PendingWrite {
+    final byte[] bytes;
+    final CompletableEmitter emitter;
+
+    PendingWrite(byte[] bytes, CompletableEmitter emitter) {
+      this.bytes = bytes;
+      this.emitter = emitter;
+    }
+  }
+
+  private final BluetoothConnection connection;
+  private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+  private final List<PendingWrite> batch = new ArrayList<>();
+
+  private volatile int maxBatchSize;
+  private volatile long maxDelayNanos;
+  private volatile boolean closed;
+
+  private byte[] buffer = new byte[0];
+  private Thread thread;
+
+  WriteQueue(BluetoothConnection connection, int maxBatchSize, long maxDelay, TimeUnit unit) {
+    this.connection = connection;
+    configure(maxBatchSize, maxDelay, unit);
+  }
+
+  void configure(int maxBatchSize, long maxDelay, TimeUnit unit) {
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayNanos = unit.toNanos(maxDelay);
+  }
+
+  /** Queues payload, {@code emitter} is notified once it's flushed or failed to be written. */
+  void enqueue(byte[] bytes, CompletableEmitter emitter) {
+    startIfNeeded();
+    queue.offer(new PendingWrite(bytes, emitter));
+
+    // Queue could have been closed concurrently, don't leave payload behind.
+    if (closed) {
+      failQueued(null);
+    }
+  }
+
+  /** Stops writer thread and fails all queued payloads. */
+  void close() {
+    Thread thread;
+    synchronized (this) {
+      closed = true;
+      thread = this.thread;
+    }
+
+    if (thread != null && thread != Thread.currentThread()) {
+      thread.interrupt();
+    }
+    failQueued(null);
+  }
+
+  int size() {
+    return queue.size();
+  }
+
+  private synchronized void startIfNeeded() {
+    if (thread == null && !closed) {
+      thread = WRITER_THREADS.newThread(this);
+      thread.start();
+    }
+  }
+
+  @Override public void run() {
+    PendingWrite carried = null;
+    try {
+      while (!closed) {
+        PendingWrite first = carried != null ? carried : queue.take();
+        carried = null;
+
+        int maxBatchSize = this.maxBatchSize;
+        int size = first.bytes.length;
+        batch.add(first);
+
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (size < maxBatchSize) {
+          PendingWrite next = queue.poll();
+          if (next == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+
+            next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+          }
+
+          if (size + next.bytes.length > maxBatchSize) {
+            carried = next;
+            break;
+          }
+          batch.add(next);
+          size += next.bytes.length;
+        }
+
+        writeBatch(size);
+      }
+    } catch (InterruptedException ignored) {
+      // Closed.
+    } finally {
+      closed = true;
+      if (carried != null) {
+        batch.add(carried);
+      }
+      failBatch(null);
+      failQueued(null);
+    }
+  }
+
+  private void writeBatch(int size) {
+    try {
+      if (batch.size() == 1) {
+        byte[] bytes = batch.get(0).bytes;
+        connection.write(bytes, 0, bytes.length, 1);
+      } else {
+        if (buffer.length < size) {
+          buffer = new byte[Math.max(size, maxBatchSize)];
+        }
+        int position = 0;
+        for (int i = 0; i < batch.size(); i++) {
+          byte[] bytes = batch.get(i).bytes;
+          System.arraycopy(bytes, 0, buffer, position, bytes.length);
+          position += bytes.length;
+        }
+        connection.write(buffer, 0, size, batch.size());
+      }
+    } catch (IOException e) {
+      closed = true;
+      failBatch(e);
+      return;
+    }
+
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).emitter.onComplete();
+    }
+    batch.clear();
+  }
+
+  private void failBatch(IOException cause) {
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).emitter.onError(error(cause));
+    }
+    batch.clear();
+  }
+
+  private void failQueued(IOException cause) {
+    PendingWrite pending;
+    while ((pending = queue.poll()) != null) {
+      pending.emitter.onError(error(cause));
+    }
+  }
+
+  private static ConnectionClosedException error(IOException cause) {
+    return cause != null ? new ConnectionClosedException("Can't write stream", cause)
+        : new ConnectionClosedException("Connection closed", null);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.security.InvalidParameterException;
+
+/**
+ * Decodes COBS (Consistent Overhead Byte Stuffing) frames. Frames are separated by zero bytes and
+ * decoded in place once the delimiter arrives. Empty frames are skipped.
+ */
+public final class CobsFrameDecoder implements FrameDecoder {
+  private final int maxEncodedLength;
+
+  private final FrameBuffer buffer = new FrameBuffer();
+
+  public CobsFrameDecoder() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxFrameLength maximum length of a decoded frame
+   */
+  public CobsFrameDecoder(int maxFrameLength) {
+    if (maxFrameLength <= 0) {
+      throw new InvalidParameterException("Max frame length should be positive");
+    }
+
+    // Encoding adds one byte per 254 bytes of data plus one.
+    long maxEncodedLength = (long) maxFrameLength + maxFrameLength / 254 + 1;
+    this.maxEncodedLength = (int) Math.min(Integer.MAX_VALUE, maxEncodedLength);
+  }
+
+  @Override public void decode(byte[] data, int offset, int length, Callback callback)
+      throws InvalidFrameException {
+    int end = offset + length;
+    int i = offset;
+
+    while (i < end) {
+      int run = i;
+      while (run < end && data[run] != 0) {
+        run++;
+      }
+
+      if (buffer.size + run - i > maxEncodedLength) {
+        reset();
+        throw new InvalidFrameException("Frame exceeds " + maxEncodedLength + " encoded bytes");
+      }
+      buffer.append(data, i, run - i);
+      i = run;
+
+      if (i < end) {
+        i++;
+        if (buffer.size > 0) {
+          int frameLength = unstuff(buffer.array, buffer.size);
+          buffer.clear();
+          callback.onFrame(buffer.array, 0, frameLength);
+        }
+      }
+    }
+  }
+
+  /** Incomplete frame is dropped. */
+  @Override public void flush(Callback callback) {
+    reset();
+  }
+
+  @Override public void reset() {
+    buffer.clear();
+  }
+
+  /** Decodes {@code length} bytes of {@code frame} in place and returns decoded length. */
+  private int unstuff(byte[] frame, int length) throws InvalidFrameException {
+    int read = 0;
+    int write = 0;
+
+    while (read < length) {
+      int code = frame[read++] & 0xFF;
+      int blockEnd = read + code - 1;
+      if (blockEnd > length) {
+        reset();
+        throw new InvalidFrameException("Malformed COBS frame");
+      }
+
+      System.arraycopy(frame, read, frame, write, code - 1);
+      write += code - 1;
+      read = blockEnd;
+
+      if (code != 0xFF && read < length) {
+        frame[write++] = 0;
+      }
+    }
+    return write;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.security.InvalidParameterException;
+
+/**
+ * Splits bytes into frames separated by a delimiter sequence. Delimiter is not included into
+ * frames.
+ *
+ * <p>Bytes are accumulated in a growable primitive buffer and the delimiter is matched in a single
+ * pass (Knuth-Morris-Pratt), so a partial delimiter match followed by ordinary data is kept as
+ * data.
+ */
+public final class DelimiterFrameDecoder implements FrameDecoder {
+  private final byte[] delimiter;
+  private final int[] failure;
+  private final int maxFrameLength;
+
+  private final FrameBuffer buffer = new FrameBuffer();
+  private int matched;
+
+  /**
+   * @param delimiter byte(s) used as frame delimiter
+   */
+  public DelimiterFrameDecoder(byte... delimiter) {
+    this(Integer.MAX_VALUE, delimiter);
+  }
+
+  /**
+   * @param maxFrameLength maximum length of a frame, not including delimiter
+   * @param delimiter byte(s) used as frame delimiter
+   */
+  public DelimiterFrameDecoder(int maxFrameLength, byte... delimiter) {
+    if (delimiter == null || delimiter.length == 0) {
+      throw new InvalidParameterException("Delimiter can't be empty");
+    }
+    if (maxFrameLength <= 0) {
+      throw new InvalidParameterException("Max frame length should be positive");
+    }
+
+    this.delimiter = delimiter.clone();
+    this.failure = failure(this.delimiter);
+    this.maxFrameLength = maxFrameLength;
+  }
+
+  @Override public void decode(byte[] data, int offset, int length, Callback callback)
+      throws InvalidFrameException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      byte b = data[i];
+      buffer.append(b);
+
+      while (matched > 0 && b != delimiter[matched]) {
+        matched = failure[matched - 1];
+      }
+      if (b == delimiter[matched]) {
+        matched++;
+      }
+
+      if (matched == delimiter.length) {
+        int frameLength = buffer.size - delimiter.length;
+        buffer.clear();
+        matched = 0;
+        callback.onFrame(buffer.array, 0, frameLength);
+      } else if (buffer.size - matched > maxFrameLength) {
+        reset();
+        throw new InvalidFrameException("Frame exceeds " + maxFrameLength + " bytes");
+      }
+    }
+  }
+
+  /** Emits bytes received after the last delimiter, if any. */
+  @Override public void flush(Callback callback) {
+    if (buffer.size > 0) {
+      int frameLength = buffer.size;
+      reset();
+      callback.onFrame(buffer.array, 0, frameLength);
+    }
+  }
+
+  @Override public void reset() {
+    buffer.clear();
+    matched = 0;
+  }
+
+  /** Returns KMP failure function: length of the longest proper prefix which is also a suffix. */
+  private static int[] failure(byte[] pattern) {
+    int[] failure = new int[pattern.length];
+    int k = 0;
+    for (int i = 1; i < pattern.length; i++) {
+      while (k > 0 && pattern[i] != pattern[k]) {
+        k = failure[k - 1];
+      }
+      if (pattern[i] == pattern[k]) {
+        k++;
+      }
+      failure[i] = k;
+    }
+    return failure;
+  }
+}
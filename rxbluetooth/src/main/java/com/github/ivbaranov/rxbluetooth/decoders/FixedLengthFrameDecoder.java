@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Splits bytes into frames of a fixed length. Frames which are entirely contained in a chunk are
+ * passed on without copying.
+ */
+public final class FixedLengthFrameDecoder implements FrameDecoder {
+  private final byte[] pending;
+  private int pendingSize;
+
+  /**
+   * @param frameLength length of every frame
+   */
+  public FixedLengthFrameDecoder(int frameLength) {
+    if (frameLength <= 0) {
+      throw new InvalidParameterException("Frame length should be positive");
+    }
+
+    this.pending = new byte[frameLength];
+  }
+
+  @Override public void decode(byte[] data, int offset, int length, Callback callback) {
+    int frameLength = pending.length;
+
+    if (pendingSize > 0) {
+      int count = Math.min(frameLength - pendingSize, length);
+      System.arraycopy(data, offset, pending, pendingSize, count);
+      pendingSize += count;
+      offset += count;
+      length -= count;
+
+      if (pendingSize < frameLength) {
+        return;
+      }
+      pendingSize = 0;
+      callback.onFrame(pending, 0, frameLength);
+    }
+
+    while (length >= frameLength) {
+      callback.onFrame(data, offset, frameLength);
+      offset += frameLength;
+      length -= frameLength;
+    }
+
+    if (length > 0) {
+      System.arraycopy(data, offset, pending, 0, length);
+      pendingSize = length;
+    }
+  }
+
+  /** Incomplete frame is dropped. */
+  @Override public void flush(Callback callback) {
+    reset();
+  }
+
+  @Override public void reset() {
+    pendingSize = 0;
+  }
+}
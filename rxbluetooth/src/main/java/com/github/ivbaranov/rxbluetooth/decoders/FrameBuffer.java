@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import java.util.Arrays;
+
+/** Growable primitive byte buffer used to accumulate incomplete frames. */
+final class FrameBuffer {
+  private static final int INITIAL_CAPACITY = 64;
+
+  byte[] array = new byte[INITIAL_CAPACITY];
+  int size;
+
+  void append(byte b) {
+    ensureCapacity(size + 1);
+    array[size++] = b;
+  }
+
+  void append(byte[] data, int offset, int length) {
+    ensureCapacity(size + length);
+    System.arraycopy(data, offset, array, size, length);
+    size += length;
+  }
+
+  void ensureCapacity(int capacity) {
+    if (capacity > array.length) {
+      array = Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    }
+  }
+
+  void clear() {
+    size = 0;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+
+/**
+ * Reassembles frames from chunks of bytes read from a connection.
+ *
+ * <p>Decoders are stateful: bytes of an incomplete frame are kept until the rest of it arrives,
+ * so one instance should be fed by a single stream only.
+ */
+public interface FrameDecoder {
+
+  /**
+   * Receives decoded frames.
+   */
+  interface Callback {
+    /**
+     * Called for every decoded frame. The frame is a region of {@code buffer}, which is owned by
+     * the decoder (or by the caller of {@link #decode}) and is only valid until this method
+     * returns.
+     *
+     * @param buffer buffer containing the frame
+     * @param offset frame offset in the buffer
+     * @param length frame length
+     */
+    void onFrame(byte[] buffer, int offset, int length);
+  }
+
+  /**
+   * Consumes {@code length} bytes of {@code data} starting at {@code offset}, calling {@code
+   * callback} for every frame completed by them.
+   *
+   * @param data chunk of bytes
+   * @param offset offset of the first byte to consume
+   * @param length amount of bytes to consume
+   * @param callback receiver of decoded frames
+   * @throws InvalidFrameException if data can't be decoded
+   */
+  void decode(byte[] data, int offset, int length, Callback callback)
+      throws InvalidFrameException;
+
+  /**
+   * Called when the stream terminates. Decoders may emit data of the incomplete frame here.
+   *
+   * @param callback receiver of decoded frames
+   */
+  void flush(Callback callback);
+
+  /**
+   * Drops any incomplete frame, so decoder can be used with a new stream.
+   */
+  void reset();
+}
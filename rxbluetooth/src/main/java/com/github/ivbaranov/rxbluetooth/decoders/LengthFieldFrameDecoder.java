@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.nio.ByteOrder;
+import java.security.InvalidParameterException;
+
+/**
+ * Splits bytes into frames by the value of a length field in the frame header.
+ *
+ * <p>Full frame length is calculated as {@code lengthFieldOffset + lengthFieldLength + value of
+ * the length field + lengthAdjustment}. {@code initialBytesToStrip} bytes are removed from the
+ * beginning of every frame, which allows to drop the header. Frames which are entirely contained
+ * in a chunk are passed on without copying.
+ */
+public class LengthFieldFrameDecoder implements FrameDecoder {
+  private final int lengthFieldOffset;
+  private final int lengthFieldLength;
+  private final int lengthAdjustment;
+  private final int initialBytesToStrip;
+  private final int maxFrameLength;
+  private final boolean bigEndian;
+  private final int headerLength;
+
+  private final FrameBuffer buffer = new FrameBuffer();
+  private int frameLength = -1;
+
+  /**
+   * Creates decoder for frames with a big endian length field, which holds length of the data
+   * following it.
+   *
+   * @param lengthFieldOffset offset of the length field
+   * @param lengthFieldLength length of the length field: 1, 2, 3 or 4 bytes
+   * @param maxFrameLength maximum length of a frame, including header
+   */
+  public LengthFieldFrameDecoder(int lengthFieldOffset, int lengthFieldLength,
+      int maxFrameLength) {
+    this(lengthFieldOffset, lengthFieldLength, 0, 0, maxFrameLength, ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * @param lengthFieldOffset offset of the length field
+   * @param lengthFieldLength length of the length field: 1, 2, 3 or 4 bytes
+   * @param lengthAdjustment value added to the length field to get length of the data following
+   * it, e.g. negative header length if length field holds length of the whole frame
+   * @param initialBytesToStrip amount of bytes to strip from the beginning of every frame
+   * @param maxFrameLength maximum length of a frame, including header
+   * @param byteOrder byte order of the length field
+   */
+  public LengthFieldFrameDecoder(int lengthFieldOffset, int lengthFieldLength,
+      int lengthAdjustment, int initialBytesToStrip, int maxFrameLength, ByteOrder byteOrder) {
+    if (lengthFieldOffset < 0) {
+      throw new InvalidParameterException("Length field offset can't be negative");
+    }
+    if (lengthFieldLength < 1 || lengthFieldLength > 4) {
+      throw new InvalidParameterException("Length field length should be 1, 2, 3 or 4");
+    }
+    if (initialBytesToStrip < 0) {
+      throw new InvalidParameterException("Bytes to strip can't be negative");
+    }
+    if (maxFrameLength < lengthFieldOffset + lengthFieldLength) {
+      throw new InvalidParameterException("Max frame length should fit the length field");
+    }
+
+    this.lengthFieldOffset = lengthFieldOffset;
+    this.lengthFieldLength = lengthFieldLength;
+    this.lengthAdjustment = lengthAdjustment;
+    this.initialBytesToStrip = initialBytesToStrip;
+    this.maxFrameLength = maxFrameLength;
+    this.bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+    this.headerLength = lengthFieldOffset + lengthFieldLength;
+  }
+
+  @Override public final void decode(byte[] data, int offset, int length, Callback callback)
+      throws InvalidFrameException {
+    int end = offset + length;
+
+    // Complete the frame started by previous chunks.
+    if (buffer.size > 0) {
+      if (frameLength < 0) {
+        int count = Math.min(headerLength - buffer.size, end - offset);
+        buffer.append(data, offset, count);
+        offset += count;
+        if (buffer.size < headerLength) {
+          return;
+        }
+        frameLength = frameLength(buffer.array, 0);
+      }
+
+      int count = Math.min(frameLength - buffer.size, end - offset);
+      buffer.append(data, offset, count);
+      offset += count;
+      if (buffer.size < frameLength) {
+        return;
+      }
+      emit(buffer.array, 0, frameLength, callback);
+      reset();
+    }
+
+    // Pass on frames contained in this chunk, keep the tail.
+    while (end - offset >= headerLength) {
+      int nextLength = frameLength(data, offset);
+      if (end - offset < nextLength) {
+        frameLength = nextLength;
+        break;
+      }
+      emit(data, offset, nextLength, callback);
+      offset += nextLength;
+    }
+
+    if (offset < end) {
+      buffer.append(data, offset, end - offset);
+    }
+  }
+
+  /** Incomplete frame is dropped. */
+  @Override public final void flush(Callback callback) {
+    reset();
+  }
+
+  @Override public final void reset() {
+    buffer.clear();
+    frameLength = -1;
+  }
+
+  private void emit(byte[] frame, int offset, int length, Callback callback)
+      throws InvalidFrameException {
+    if (initialBytesToStrip > length) {
+      reset();
+      throw new InvalidFrameException("Frame of " + length + " bytes is shorter than "
+          + initialBytesToStrip + " bytes to strip");
+    }
+    callback.onFrame(frame, offset + initialBytesToStrip, length - initialBytesToStrip);
+  }
+
+  /** Returns full frame length calculated from the header at {@code offset}. */
+  private int frameLength(byte[] data, int offset) throws InvalidFrameException {
+    long value = 0;
+    for (int i = 0; i < lengthFieldLength; i++) {
+      int index = bigEndian ? i : lengthFieldLength - 1 - i;
+      value = (value << 8) | (data[offset + lengthFieldOffset + index] & 0xFF);
+    }
+
+    long frameLength = headerLength + value + lengthAdjustment;
+    if (frameLength < headerLength || frameLength > maxFrameLength) {
+      reset();
+      throw new InvalidFrameException("Invalid frame length " + frameLength);
+    }
+    return (int) frameLength;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.security.InvalidParameterException;
+
+/**
+ * Decodes SLIP (RFC 1055) frames. Frames are separated by {@code END} (0xC0) and escape sequences
+ * are replaced with the original bytes. Empty frames are skipped.
+ */
+public final class SlipFrameDecoder implements FrameDecoder {
+  static final byte END = (byte) 0xC0;
+  static final byte ESC = (byte) 0xDB;
+  static final byte ESC_END = (byte) 0xDC;
+  static final byte ESC_ESC = (byte) 0xDD;
+
+  private final int maxFrameLength;
+
+  private final FrameBuffer buffer = new FrameBuffer();
+  private boolean escaped;
+
+  public SlipFrameDecoder() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxFrameLength maximum length of a decoded frame
+   */
+  public SlipFrameDecoder(int maxFrameLength) {
+    if (maxFrameLength <= 0) {
+      throw new InvalidParameterException("Max frame length should be positive");
+    }
+
+    this.maxFrameLength = maxFrameLength;
+  }
+
+  @Override public void decode(byte[] data, int offset, int length, Callback callback)
+      throws InvalidFrameException {
+    int end = offset + length;
+    int i = offset;
+
+    while (i < end) {
+      if (escaped) {
+        byte b = data[i++];
+        escaped = false;
+        // RFC 1055 keeps bytes of an invalid escape sequence as is.
+        append(b == ESC_END ? END : b == ESC_ESC ? ESC : b);
+        continue;
+      }
+
+      // Copy the run of ordinary bytes at once.
+      int run = i;
+      while (run < end && data[run] != END && data[run] != ESC) {
+        run++;
+      }
+      if (run > i) {
+        checkLength(run - i);
+        buffer.append(data, i, run - i);
+        i = run;
+      }
+
+      if (i < end) {
+        if (data[i++] == ESC) {
+          escaped = true;
+        } else if (buffer.size > 0) {
+          int frameLength = buffer.size;
+          buffer.clear();
+          callback.onFrame(buffer.array, 0, frameLength);
+        }
+      }
+    }
+  }
+
+  /** Incomplete frame is dropped. */
+  @Override public void flush(Callback callback) {
+    reset();
+  }
+
+  @Override public void reset() {
+    buffer.clear();
+    escaped = false;
+  }
+
+  private void append(byte b) throws InvalidFrameException {
+    checkLength(1);
+    buffer.append(b);
+  }
+
+  private void checkLength(int count) throws InvalidFrameException {
+    if (buffer.size + count > maxFrameLength) {
+      reset();
+      throw new InvalidFrameException("Frame exceeds " + maxFrameLength + " bytes");
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import java.nio.ByteOrder;
+
+/**
+ * Splits bytes into type-length-value records. Every frame contains the whole record: type,
+ * length and value fields.
+ */
+public final class TlvFrameDecoder extends LengthFieldFrameDecoder {
+
+  /**
+   * Creates decoder for records with a one byte type and a one byte length fields.
+   */
+  public TlvFrameDecoder() {
+    this(1, 1, 255, ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * @param typeLength length of the type field
+   * @param lengthLength length of the length field: 1, 2, 3 or 4 bytes
+   * @param maxValueLength maximum length of the value field
+   * @param byteOrder byte order of the length field
+   */
+  public TlvFrameDecoder(int typeLength, int lengthLength, int maxValueLength,
+      ByteOrder byteOrder) {
+    super(typeLength, lengthLength, 0, 0, typeLength + lengthLength + maxValueLength, byteOrder);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.events;
+
+import android.bluetooth.BluetoothDevice;
+import androidx.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * Event container class. Contains {@link BluetoothDevice} a client connect was made to, service
+ * UUID or RFCOMM channel it was made with, time it took and error if it failed.
+ */
+public final class ConnectAttemptEvent {
+
+  private final BluetoothDevice bluetoothDevice;
+  private final UUID uuid;
+  private final int channel;
+  private final boolean secure;
+  private final long latencyMillis;
+  private final Throwable error;
+
+  public ConnectAttemptEvent(BluetoothDevice bluetoothDevice, @Nullable UUID uuid, int channel,
+      boolean secure, long latencyMillis, @Nullable Throwable error) {
+    this.bluetoothDevice = bluetoothDevice;
+    this.uuid = uuid;
+    this.channel = channel;
+    this.secure = secure;
+    this.latencyMillis = latencyMillis;
+    this.error = error;
+  }
+
+  public BluetoothDevice getBluetoothDevice() {
+    return bluetoothDevice;
+  }
+
+  /**
+   * @return service UUID, or null if connected to a channel
+   */
+  @Nullable public UUID getUuid() {
+    return uuid;
+  }
+
+  /**
+   * @return RFCOMM channel, or -1 if connected to a service UUID
+   */
+  public int getChannel() {
+    return channel;
+  }
+
+  public boolean isSecure() {
+    return secure;
+  }
+
+  /**
+   * @return time from the start of the connect to its success or failure
+   */
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public boolean isSuccessful() {
+    return error == null;
+  }
+
+  @Nullable public Throwable getError() {
+    return error;
+  }
+
+  @Override public String toString() {
+    return "ConnectAttemptEvent{" +
+        "bluetoothDevice=" + bluetoothDevice +
+        ", uuid=" + uuid +
+        ", channel=" + channel +
+        ", secure=" + secure +
+        ", latencyMillis=" + latencyMillis +
+        ", error=" + error +
+        '}';
+  }
+}
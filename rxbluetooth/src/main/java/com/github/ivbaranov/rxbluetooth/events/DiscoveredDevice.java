@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.events;
+
+import android.bluetooth.BluetoothClass;
+import android.bluetooth.BluetoothDevice;
+import androidx.annotation.Nullable;
+
+/**
+ * Event container class. Contains {@link BluetoothDevice} found while discovering, along with its
+ * signal strength, name and class as reported by the sighting, and time of the sighting.
+ */
+public final class DiscoveredDevice {
+
+  /** RSSI value of a sighting which didn't report signal strength. */
+  public static final int UNKNOWN_RSSI = Short.MIN_VALUE;
+
+  private final BluetoothDevice bluetoothDevice;
+  private final int rssi;
+  private final String name;
+  private final BluetoothClass bluetoothClass;
+  private final long timestamp;
+
+  public DiscoveredDevice(BluetoothDevice bluetoothDevice, int rssi, @Nullable String name,
+      @Nullable BluetoothClass bluetoothClass, long timestamp) {
+    this.bluetoothDevice = bluetoothDevice;
+    this.rssi = rssi;
+    this.name = name;
+    this.bluetoothClass = bluetoothClass;
+    this.timestamp = timestamp;
+  }
+
+  public BluetoothDevice getBluetoothDevice() {
+    return bluetoothDevice;
+  }
+
+  /**
+   * @return signal strength in dBm, or {@link #UNKNOWN_RSSI}
+   */
+  public int getRssi() {
+    return rssi;
+  }
+
+  @Nullable public String getName() {
+    return name;
+  }
+
+  @Nullable public BluetoothClass getBluetoothClass() {
+    return bluetoothClass;
+  }
+
+  /**
+   * @return time of the sighting in milliseconds since epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Returns true if {@code other} reports the same name, class and signal strength as this
+   * sighting, regardless of time.
+   *
+   * @param other another sighting of the same device
+   * @return true if nothing changed
+   */
+  public boolean isSameSighting(DiscoveredDevice other) {
+    return rssi == other.rssi
+        && (name != null ? name.equals(other.name) : other.name == null)
+        && (bluetoothClass != null ? bluetoothClass.equals(other.bluetoothClass)
+        : other.bluetoothClass == null);
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    DiscoveredDevice that = (DiscoveredDevice) o;
+
+    if (timestamp != that.timestamp) return false;
+    if (!(bluetoothDevice != null ? bluetoothDevice.equals(that.bluetoothDevice)
+        : that.bluetoothDevice == null)) {
+      return false;
+    }
+    return isSameSighting(that);
+  }
+
+  @Override public int hashCode() {
+    int result = bluetoothDevice != null ? bluetoothDevice.hashCode() : 0;
+    result = 31 * result + rssi;
+    result = 31 * result + (name != null ? name.hashCode() : 0);
+    result = 31 * result + (bluetoothClass != null ? bluetoothClass.hashCode() : 0);
+    result = 31 * result + (int) (timestamp ^ (timestamp >>> 32));
+    return result;
+  }
+
+  @Override public String toString() {
+    return "DiscoveredDevice{" +
+        "bluetoothDevice=" + bluetoothDevice +
+        ", rssi=" + rssi +
+        ", name='" + name + '\'' +
+        ", bluetoothClass=" + bluetoothClass +
+        ", timestamp=" + timestamp +
+        '}';
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.InvalidParameterException;
+
+/**
+ * Size-bounded ring file of traffic records written by {@link CaptureTransport} and read by
+ * {@link ReplayTransport}. Every record holds direction, {@link System#nanoTime()} and bytes of
+ * one read or write. Once the file is full, the oldest records are overwritten.
+ *
+ * <p>File is memory-mapped, so recording is a copy into memory under a short lock, without
+ * system calls on the reader or writer thread. Records survive a crash of the process, positions
+ * in the header are updated after every record.
+ *
+ * <p>Layout: 32 bytes header (magic, capacity, write position, position of the oldest record),
+ * then {@code capacity} bytes of records, each being payload length (int), direction (byte),
+ * time (long) and payload. Positions are counted from the start of capture and wrap around the
+ * data region.
+ */
+public final class CaptureFile implements Closeable {
+
+  /** Direction of bytes read from the remote device. */
+  public static final byte DIRECTION_IN = 0;
+  /** Direction of bytes written to the remote device. */
+  public static final byte DIRECTION_OUT = 1;
+
+  static final int MAGIC = 0x52584243; // RXBC
+  static final int HEADER_SIZE = 32;
+  static final int CAPACITY_OFFSET = 4;
+  static final int WRITE_POSITION_OFFSET = 8;
+  static final int OLDEST_POSITION_OFFSET = 16;
+  static final int RECORD_HEADER_SIZE = 13;
+
+  private static final int MIN_CAPACITY = 1024;
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer buffer;
+  private final ByteBuffer data;
+  private final int capacity;
+  private final int maxPayload;
+  private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+  private long writePosition;
+  private long oldestPosition;
+  private boolean closed;
+
+  /**
+   * Creates capture file, replacing contents of an existing one.
+   *
+   * @param file file to write
+   * @param capacity size of the ring in bytes, at least 1 KB
+   * @throws IOException if file can't be created or mapped
+   */
+  public CaptureFile(File file, int capacity) throws IOException {
+    if (capacity < MIN_CAPACITY || capacity > Integer.MAX_VALUE - HEADER_SIZE) {
+      throw new InvalidParameterException("Capacity should be from 1 KB to 2 GB");
+    }
+
+    this.file = new RandomAccessFile(file, "rw");
+    try {
+      this.file.setLength(0);
+      this.buffer = this.file.getChannel()
+          .map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+    } catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+    this.capacity = capacity;
+    // Larger reads and writes are split, so that one record never takes the whole ring.
+    this.maxPayload = capacity / 4 - RECORD_HEADER_SIZE;
+
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(CAPACITY_OFFSET, capacity);
+    buffer.putLong(WRITE_POSITION_OFFSET, 0);
+    buffer.putLong(OLDEST_POSITION_OFFSET, 0);
+    buffer.position(HEADER_SIZE);
+    data = buffer.slice();
+  }
+
+  /**
+   * @return amount of bytes of records written since the capture started, including overwritten
+   * ones
+   */
+  public synchronized long getWrittenBytes() {
+    return writePosition;
+  }
+
+  /**
+   * Appends a record, overwriting the oldest ones if there is no room. Does nothing once closed.
+   */
+  synchronized void record(byte direction, byte[] bytes, int offset, int length) {
+    if (closed) return;
+
+    long nanos = System.nanoTime();
+    while (length > 0) {
+      int payload = Math.min(length, maxPayload);
+      int size = RECORD_HEADER_SIZE + payload;
+      while (writePosition + size - oldestPosition > capacity) {
+        recordHeader.clear();
+        get(data, capacity, oldestPosition, recordHeader.array(), 0, 4);
+        oldestPosition += RECORD_HEADER_SIZE + recordHeader.getInt(0);
+      }
+      buffer.putLong(OLDEST_POSITION_OFFSET, oldestPosition);
+
+      recordHeader.clear();
+      recordHeader.putInt(payload).put(direction).putLong(nanos);
+      put(writePosition, recordHeader.array(), 0, RECORD_HEADER_SIZE);
+      put(writePosition + RECORD_HEADER_SIZE, bytes, offset, payload);
+      writePosition += size;
+      buffer.putLong(WRITE_POSITION_OFFSET, writePosition);
+
+      offset += payload;
+      length -= payload;
+    }
+  }
+
+  /**
+   * Flushes records to the file and closes it.
+   *
+   * @throws IOException if closing failed
+   */
+  @Override public synchronized void close() throws IOException {
+    if (closed) return;
+
+    closed = true;
+    buffer.force();
+    file.close();
+  }
+
+  private void put(long position, byte[] bytes, int offset, int length) {
+    int index = (int) (position % capacity);
+    int first = Math.min(length, capacity - index);
+    data.position(index);
+    data.put(bytes, offset, first);
+    if (first < length) {
+      data.position(0);
+      data.put(bytes, offset + first, length - first);
+    }
+  }
+
+  /** Reads {@code length} bytes at {@code position} of a ring of {@code capacity} bytes. */
+  static void get(ByteBuffer data, int capacity, long position, byte[] bytes, int offset,
+      int length) {
+    int index = (int) (position % capacity);
+    int first = Math.min(length, capacity - index);
+    data.position(index);
+    data.get(bytes, offset, first);
+    if (first < length) {
+      data.position(0);
+      data.get(bytes, offset + first, length - first);
+    }
+  }
+}
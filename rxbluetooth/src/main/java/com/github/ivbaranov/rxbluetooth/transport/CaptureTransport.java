@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidParameterException;
+
+/**
+ * {@link Transport} which records everything read from and written to another transport into a
+ * {@link CaptureFile}, e.g. to debug a device protocol in the field and replay it later with
+ * {@link ReplayTransport}. Every read and write becomes one record, so read sizes are preserved.
+ *
+ * <p>Closing the transport closes the wrapped one, the capture file is closed by its owner.
+ */
+public final class CaptureTransport implements Transport {
+
+  private final Transport transport;
+  private final CaptureFile capture;
+  private InputStream inputStream;
+  private OutputStream outputStream;
+
+  /**
+   * @param transport transport to record
+   * @param capture file to record to
+   */
+  public CaptureTransport(Transport transport, CaptureFile capture) {
+    if (transport == null) {
+      throw new InvalidParameterException("Transport can't be null");
+    }
+    if (capture == null) {
+      throw new InvalidParameterException("Capture file can't be null");
+    }
+
+    this.transport = transport;
+    this.capture = capture;
+  }
+
+  @Override public synchronized InputStream getInputStream() throws IOException {
+    if (inputStream == null) {
+      inputStream = new FilterInputStream(transport.getInputStream()) {
+        @Override public int read() throws IOException {
+          int b = super.read();
+          if (b >= 0) {
+            capture.record(CaptureFile.DIRECTION_IN, new byte[] { (byte) b }, 0, 1);
+          }
+          return b;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+          int read = super.read(b, off, len);
+          if (read > 0) {
+            capture.record(CaptureFile.DIRECTION_IN, b, off, read);
+          }
+          return read;
+        }
+      };
+    }
+    return inputStream;
+  }
+
+  @Override public synchronized OutputStream getOutputStream() throws IOException {
+    if (outputStream == null) {
+      outputStream = new FilterOutputStream(transport.getOutputStream()) {
+        @Override public void write(int b) throws IOException {
+          out.write(b);
+          capture.record(CaptureFile.DIRECTION_OUT, new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+          // FilterOutputStream writes arrays byte by byte, so the array is passed on as is.
+          out.write(b, off, len);
+          capture.record(CaptureFile.DIRECTION_OUT, b, off, len);
+        }
+      };
+    }
+    return outputStream;
+  }
+
+  @Override public void close() throws IOException {
+    transport.close();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidParameterException;
+
+/**
+ * In-memory {@link Transport} connected to a peer: data written to one end is read from the other
+ * one. Closing either end closes the link, reads of the other end then return end of stream.
+ *
+ * <pre>{@code
+ * LoopbackTransport transport = new LoopbackTransport();
+ * BluetoothConnection connection = new BluetoothConnection(transport);
+ * LoopbackTransport device = transport.getPeer(); // Plays the remote device
+ * }</pre>
+ */
+public final class LoopbackTransport implements Transport {
+  private static final int DEFAULT_CAPACITY = 64 * 1024;
+
+  private final Pipe in;
+  private final Pipe out;
+  private final LoopbackTransport peer;
+
+  public LoopbackTransport() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity amount of bytes buffered in each direction before writer blocks
+   */
+  public LoopbackTransport(int capacity) {
+    if (capacity <= 0) {
+      throw new InvalidParameterException("Capacity should be positive");
+    }
+
+    this.in = new Pipe(capacity);
+    this.out = new Pipe(capacity);
+    this.peer = new LoopbackTransport(out, in, this);
+  }
+
+  private LoopbackTransport(Pipe in, Pipe out, LoopbackTransport peer) {
+    this.in = in;
+    this.out = out;
+    this.peer = peer;
+  }
+
+  /**
+   * @return the other end of the link
+   */
+  public LoopbackTransport getPeer() {
+    return peer;
+  }
+
+  @Override public InputStream getInputStream() {
+    return in.source;
+  }
+
+  @Override public OutputStream getOutputStream() {
+    return out.sink;
+  }
+
+  @Override public void close() {
+    in.close();
+    out.close();
+  }
+}
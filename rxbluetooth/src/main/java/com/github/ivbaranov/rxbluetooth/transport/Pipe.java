@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Bounded in-memory byte pipe. Unlike {@link java.io.PipedInputStream} it doesn't care which
+ * threads read and write. Writer blocks while the pipe is full, reader blocks while it's empty
+ * and gets end of stream once the pipe is closed and drained.
+ */
+final class Pipe {
+  private final byte[] buffer;
+  private int head;
+  private int size;
+  private boolean closed;
+
+  final InputStream source = new InputStream() {
+    @Override public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override public int read(byte[] b, int off, int len) throws IOException {
+      return Pipe.this.read(b, off, len);
+    }
+
+    @Override public int available() {
+      synchronized (Pipe.this) {
+        return size;
+      }
+    }
+
+    @Override public void close() {
+      Pipe.this.close();
+    }
+  };
+
+  final OutputStream sink = new OutputStream() {
+    @Override public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+      Pipe.this.write(b, off, len);
+    }
+
+    @Override public void close() {
+      Pipe.this.close();
+    }
+  };
+
+  Pipe(int capacity) {
+    buffer = new byte[capacity];
+  }
+
+  synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  private synchronized int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) return 0;
+
+    while (size == 0) {
+      if (closed) return -1;
+      await();
+    }
+
+    int count = Math.min(len, size);
+    int first = Math.min(count, buffer.length - head);
+    System.arraycopy(buffer, head, b, off, first);
+    System.arraycopy(buffer, 0, b, off + first, count - first);
+    head = (head + count) % buffer.length;
+    size -= count;
+    notifyAll();
+    return count;
+  }
+
+  private synchronized void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      while (size == buffer.length && !closed) {
+        await();
+      }
+      if (closed) {
+        throw new IOException("Pipe closed");
+      }
+
+      int tail = (head + size) % buffer.length;
+      int count = Math.min(len, Math.min(buffer.length - size, buffer.length - tail));
+      System.arraycopy(b, off, buffer, tail, count);
+      size += count;
+      off += count;
+      len -= count;
+      notifyAll();
+    }
+  }
+
+  private void await() throws InterruptedIOException {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+}
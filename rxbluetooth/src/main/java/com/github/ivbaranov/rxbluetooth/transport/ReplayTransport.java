@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.InvalidParameterException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Transport} which plays back bytes read from the remote device in a {@link CaptureFile},
+ * e.g. for reproducible tests and benchmarks of protocol code off device. Records are read in
+ * the same sizes and, unless speed is unlimited, at the same pace as they were captured. Writes
+ * are discarded. Input stream ends after the last record.
+ */
+public final class ReplayTransport implements Transport {
+
+  /** Speed which plays records back without delays. */
+  public static final double UNLIMITED_SPEED = Double.POSITIVE_INFINITY;
+
+  private final RandomAccessFile file;
+  private final ByteBuffer data;
+  private final int capacity;
+  private final long endPosition;
+  private final double speed;
+
+  private final Object lock = new Object();
+  private final ReplayInputStream inputStream = new ReplayInputStream();
+  private final OutputStream outputStream = new OutputStream() {
+    @Override public void write(int b) {
+    }
+
+    @Override public void write(byte[] b, int off, int len) {
+    }
+  };
+  private boolean closed;
+
+  /**
+   * Creates transport which plays records back at the original pace.
+   *
+   * @param capture capture file to play back
+   * @throws IOException if file can't be read or isn't a capture file
+   */
+  public ReplayTransport(File capture) throws IOException {
+    this(capture, 1);
+  }
+
+  /**
+   * @param capture capture file to play back
+   * @param speed how many times faster than captured to play records back, or {@link
+   * #UNLIMITED_SPEED}
+   * @throws IOException if file can't be read or isn't a capture file
+   */
+  public ReplayTransport(File capture, double speed) throws IOException {
+    if (!(speed > 0)) {
+      throw new InvalidParameterException("Speed should be positive");
+    }
+
+    this.file = new RandomAccessFile(capture, "r");
+    try {
+      ByteBuffer buffer =
+          file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+      if (buffer.capacity() < CaptureFile.HEADER_SIZE || buffer.getInt(0) != CaptureFile.MAGIC
+          || buffer.getInt(CaptureFile.CAPACITY_OFFSET)
+          != buffer.capacity() - CaptureFile.HEADER_SIZE) {
+        throw new IOException("Not a capture file: " + capture);
+      }
+
+      this.capacity = buffer.getInt(CaptureFile.CAPACITY_OFFSET);
+      this.endPosition = buffer.getLong(CaptureFile.WRITE_POSITION_OFFSET);
+      this.inputStream.position = buffer.getLong(CaptureFile.OLDEST_POSITION_OFFSET);
+      buffer.position(CaptureFile.HEADER_SIZE);
+      this.data = buffer.slice();
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+    this.speed = speed;
+  }
+
+  @Override public InputStream getInputStream() {
+    return inputStream;
+  }
+
+  /**
+   * @return stream which discards everything written
+   */
+  @Override public OutputStream getOutputStream() {
+    return outputStream;
+  }
+
+  @Override public void close() throws IOException {
+    synchronized (lock) {
+      if (closed) return;
+
+      closed = true;
+      lock.notifyAll();
+    }
+    file.close();
+  }
+
+  private final class ReplayInputStream extends InputStream {
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(CaptureFile.RECORD_HEADER_SIZE);
+    private final byte[] single = new byte[1];
+    long position;
+    private int remaining;
+    private long firstNanos;
+    private long startNanos;
+    private boolean started;
+
+    @Override public int read() throws IOException {
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override public int read(byte[] b, int off, int len) throws IOException {
+      synchronized (lock) {
+        while (remaining == 0) {
+          if (closed || position >= endPosition) {
+            return -1;
+          }
+
+          CaptureFile.get(data, capacity, position, recordHeader.array(), 0,
+              CaptureFile.RECORD_HEADER_SIZE);
+          int length = recordHeader.getInt(0);
+          byte direction = recordHeader.get(4);
+          long nanos = recordHeader.getLong(5);
+          position += CaptureFile.RECORD_HEADER_SIZE;
+
+          if (!started) {
+            started = true;
+            firstNanos = nanos;
+            startNanos = System.nanoTime();
+          }
+          if (direction != CaptureFile.DIRECTION_IN) {
+            position += length;
+            continue;
+          }
+
+          awaitRecord(nanos);
+          remaining = length;
+        }
+
+        int read = Math.min(len, remaining);
+        CaptureFile.get(data, capacity, position, b, off, read);
+        position += read;
+        remaining -= read;
+        return read;
+      }
+    }
+
+    @Override public int available() {
+      synchronized (lock) {
+        return remaining;
+      }
+    }
+
+    /** Waits until the record is due, relative to the first record. Returns early once closed. */
+    private void awaitRecord(long nanos) throws IOException {
+      long due = startNanos + (long) ((nanos - firstNanos) / speed);
+      long delay;
+      while (!closed && (delay = due - System.nanoTime()) > 0) {
+        try {
+          lock.wait(TimeUnit.NANOSECONDS.toMillis(delay), (int) (delay % 1000000));
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException("Replay interrupted");
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidParameterException;
+
+/**
+ * {@link Transport} over arbitrary streams, e.g. captured device traffic read from a file.
+ * Closing the transport closes both streams.
+ */
+public final class StreamTransport implements Transport {
+
+  private final InputStream inputStream;
+  private final OutputStream outputStream;
+
+  public StreamTransport(InputStream inputStream, OutputStream outputStream) {
+    if (inputStream == null || outputStream == null) {
+      throw new InvalidParameterException("Streams can't be null");
+    }
+
+    this.inputStream = inputStream;
+    this.outputStream = outputStream;
+  }
+
+  @Override public InputStream getInputStream() {
+    return inputStream;
+  }
+
+  @Override public OutputStream getOutputStream() {
+    return outputStream;
+  }
+
+  @Override public void close() throws IOException {
+    try {
+      inputStream.close();
+    } finally {
+      outputStream.close();
+    }
+  }
+}
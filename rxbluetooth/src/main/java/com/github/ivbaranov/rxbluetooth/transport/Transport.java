@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Pair of streams {@link com.github.ivbaranov.rxbluetooth.BluetoothConnection} reads from and
+ * writes to. Usually it's a {@link android.bluetooth.BluetoothSocket}, see {@link
+ * BluetoothSocketTransport}, but any stream pair can be used to run connection off device.
+ */
+public interface Transport extends Closeable {
+
+  /**
+   * @return stream to read received data from
+   * @throws IOException if stream can't be obtained
+   */
+  InputStream getInputStream() throws IOException;
+
+  /**
+   * @return stream to write data to
+   * @throws IOException if stream can't be obtained
+   */
+  OutputStream getOutputStream() throws IOException;
+
+  /**
+   * Closes both streams and the underlying connection. Blocked reads should fail or return end of
+   * stream.
+   *
+   * @throws IOException if closing failed
+   */
+  @Override void close() throws IOException;
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.decoders.LengthFieldFrameDecoder;
+import com.github.ivbaranov.rxbluetooth.exceptions.ConnectionClosedException;
+import com.github.ivbaranov.rxbluetooth.transport.LoopbackTransport;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BluetoothConnectionTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private LoopbackTransport device;
+  private OutputStream deviceOutput;
+  private BluetoothConnection connection;
+
+  @Before public void setUp() throws Exception {
+    LoopbackTransport transport = new LoopbackTransport();
+    device = transport.getPeer();
+    deviceOutput = device.getOutputStream();
+    connection = new BluetoothConnection(transport);
+  }
+
+  @After public void tearDown() {
+    connection.closeConnection();
+  }
+
+  @Test public void sendWritesToTransport() throws Exception {
+    assertTrue(connection.send("hello"));
+    assertTrue(connection.send(new byte[] { 0, 1, 2, 3 }, 1, 2));
+    assertTrue(connection.send(new byte[] { 3 }, new byte[] { 4, 5 }));
+
+    assertArrayEquals("hello".getBytes(UTF_8), readFromDevice(5));
+    assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, readFromDevice(5));
+  }
+
+  @Test public void sendAsyncWritesPayloadsInOrder() throws Exception {
+    connection.sendAsync("a").test();
+    connection.sendAsync("b").test();
+    connection.sendAsync("c").blockingAwait(5, TimeUnit.SECONDS);
+
+    assertArrayEquals("abc".getBytes(UTF_8), readFromDevice(3));
+  }
+
+  @Test public void sendAsyncCoalescesQueuedPayloads() throws Exception {
+    connection.setWriteBatching(1024, 100, TimeUnit.MILLISECONDS);
+
+    Completable.merge(Arrays.asList(connection.sendAsync("a"), connection.sendAsync("b"),
+        connection.sendAsync("c"))).blockingAwait(5, TimeUnit.SECONDS);
+
+    assertArrayEquals("abc".getBytes(UTF_8), readFromDevice(3));
+    assertEquals(1, connection.getStats().getWriteCount());
+    assertEquals(3, connection.getStats().getFramesWritten());
+  }
+
+  @Test public void byteStreamEmitsBytesWrittenByDevice() throws Exception {
+    TestSubscriber<Byte> subscriber = connection.observeByteStream().take(3).test();
+
+    deviceOutput.write(new byte[] { 1, 2 });
+    deviceOutput.write(3);
+
+    subscriber.awaitDone(5, TimeUnit.SECONDS).assertResult((byte) 1, (byte) 2, (byte) 3);
+  }
+
+  @Test public void stringStreamJoinsLinesSplitBetweenWrites() throws Exception {
+    TestSubscriber<String> subscriber = connection.observeStringStream().take(2).test();
+
+    deviceOutput.write("hel".getBytes(UTF_8));
+    deviceOutput.write("lo\r".getBytes(UTF_8));
+    deviceOutput.write("\nworld\r\n".getBytes(UTF_8));
+
+    subscriber.awaitDone(5, TimeUnit.SECONDS).assertResult("hello", "world");
+  }
+
+  @Test public void charsetStringStreamDecodesCharactersSplitBetweenWrites() throws Exception {
+    TestSubscriber<String> subscriber =
+        connection.observeStringStream(UTF_8, 100, "\n").take(2).test();
+
+    for (byte b : "héllo\n✓\n".getBytes(UTF_8)) {
+      deviceOutput.write(b);
+    }
+
+    subscriber.awaitDone(5, TimeUnit.SECONDS).assertResult("héllo", "✓");
+  }
+
+  @Test public void framesAreReassembledFromSplitWrites() throws Exception {
+    TestSubscriber<byte[]> subscriber =
+        connection.observeFrames(new LengthFieldFrameDecoder(0, 1, 100)).take(2).test();
+
+    deviceOutput.write(new byte[] { 2, 7 });
+    deviceOutput.write(new byte[] { 7, 1 });
+    deviceOutput.write(new byte[] { 5 });
+
+    subscriber.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+    assertArrayEquals(new byte[] { 2, 7, 7 }, subscriber.values().get(0));
+    assertArrayEquals(new byte[] { 1, 5 }, subscriber.values().get(1));
+  }
+
+  @Test public void readsFollowDemand() throws Exception {
+    TestSubscriber<byte[]> subscriber = connection.observeChunkStream(4).test(0);
+
+    deviceOutput.write(new byte[64]);
+    Thread.sleep(200);
+
+    // Read loop runs at most one chunk ahead, the rest is left in the transport.
+    assertTrue(connection.getStats().getBytesRead() <= 4);
+    subscriber.assertNoValues();
+
+    subscriber.request(2);
+    subscriber.awaitCount(2);
+    subscriber.assertValueCount(2);
+  }
+
+  @Test public void bufferStreamReusesReleasedBuffers() throws Exception {
+    BufferPool pool = new BufferPool(16, 4);
+    TestSubscriber<PooledBuffer> subscriber = connection.observeBufferStream(pool).test(0);
+
+    for (int i = 0; i < 10; i++) {
+      deviceOutput.write(new byte[16]);
+      subscriber.request(1);
+      subscriber.awaitCount(i + 1);
+      PooledBuffer buffer = subscriber.values().get(i);
+      assertEquals(16, buffer.getBuffer().remaining());
+      buffer.release();
+    }
+
+    assertTrue(pool.getMissCount() <= 2);
+  }
+
+  @Test public void streamFailsWhenDeviceDisconnects() {
+    TestSubscriber<byte[]> subscriber = connection.observeChunkStream().test();
+
+    device.close();
+
+    subscriber.awaitDone(5, TimeUnit.SECONDS).assertError(ConnectionClosedException.class);
+    assertFalse(connection.isConnected());
+  }
+
+  @Test public void closedConnectionFailsStreamsAndSends() {
+    connection.closeConnection();
+
+    connection.observeChunkStream().test().awaitDone(5, TimeUnit.SECONDS)
+        .assertError(ConnectionClosedException.class);
+    connection.observeStringStream().test().awaitDone(5, TimeUnit.SECONDS)
+        .assertError(ConnectionClosedException.class);
+    connection.sendAsync("a").test().assertError(ConnectionClosedException.class);
+    assertFalse(connection.send("a"));
+  }
+
+  @Test public void streamObtainedBeforeCloseFailsOnSubscribe() {
+    Flowable<byte[]> chunks = connection.observeChunkStream();
+    Flowable<String> lines = connection.observeStringStream();
+    connection.closeConnection();
+
+    chunks.test().awaitDone(5, TimeUnit.SECONDS).assertError(ConnectionClosedException.class);
+    lines.test().awaitDone(5, TimeUnit.SECONDS).assertError(ConnectionClosedException.class);
+  }
+
+  private byte[] readFromDevice(int length) throws IOException {
+    byte[] bytes = new byte[length];
+    new DataInputStream(device.getInputStream()).readFully(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.transport.LoopbackTransport;
+import io.reactivex.subscribers.TestSubscriber;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkTransferTest {
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private LoopbackTransport device;
+  private BluetoothConnection sender;
+  private BluetoothConnection receiver;
+
+  @Before public void setUp() throws Exception {
+    LoopbackTransport transport = new LoopbackTransport(8192);
+    device = transport.getPeer();
+    sender = new BluetoothConnection(transport);
+    receiver = new BluetoothConnection(device);
+  }
+
+  @After public void tearDown() {
+    sender.closeConnection();
+    receiver.closeConnection();
+  }
+
+  @Test public void transfersFileWithAckWindow() throws Exception {
+    byte[] data = new byte[100 * 1024 + 7];
+    new Random(0).nextBytes(data);
+    File source = folder.newFile();
+    File target = folder.newFile();
+    FileOutputStream output = new FileOutputStream(source);
+    output.write(data);
+    output.close();
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    TransferOptions options = new TransferOptions(4096, true, 4);
+
+    FileOutputStream received = new FileOutputStream(target);
+    TestSubscriber<TransferProgress> receiving = new BulkTransfer(receiver, options)
+        .receive(received.getChannel(), data.length, new byte[] { 6 })
+        .test();
+    FileInputStream sent = new FileInputStream(source);
+    TransferProgress last = new BulkTransfer(sender, options)
+        .send(sent.getChannel(), sender.observeByteStream())
+        .blockingLast();
+    sent.close();
+    receiving.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+    received.close();
+
+    assertTrue(last.isComplete());
+    assertEquals(data.length, last.getBytesTransferred());
+    assertEquals(crc.getValue(), last.getChecksum());
+    TransferProgress lastReceived = receiving.values().get(receiving.valueCount() - 1);
+    assertTrue(lastReceived.isComplete());
+    assertEquals(crc.getValue(), lastReceived.getChecksum());
+    assertArrayEquals(data, readFile(target));
+  }
+
+  @Test public void sendsStreamOfUnknownLength() throws Exception {
+    TransferProgress last = new BulkTransfer(sender, new TransferOptions(1000, false, 0))
+        .send(new ByteArrayInputStream(new byte[2500]), TransferProgress.UNKNOWN_LENGTH)
+        .blockingLast();
+
+    assertTrue(last.isComplete());
+    assertEquals(2500, last.getBytesTransferred());
+    assertEquals(TransferProgress.NO_CHECKSUM, last.getChecksum());
+    byte[] bytes = new byte[2500];
+    // Receiving connection isn't read by any stream here, so the device end is read directly.
+    new DataInputStream(device.getInputStream()).readFully(bytes);
+    assertArrayEquals(new byte[2500], bytes);
+  }
+
+  @Test public void failsWhenStreamEndsEarly() {
+    new BulkTransfer(sender).send(new ByteArrayInputStream(new byte[10]), 20).test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertError(EOFException.class);
+  }
+
+  @Test public void emptyTransferReportsChecksumOfNoData() throws Exception {
+    RandomAccessFile file = new RandomAccessFile(folder.newFile(), "rw");
+    TestSubscriber<TransferProgress> subscriber =
+        new BulkTransfer(receiver, new TransferOptions(4096, true, 0))
+            .receive(file.getChannel(), 0, null)
+            .test();
+    file.close();
+
+    subscriber.assertValueCount(1).assertComplete();
+    TransferProgress progress = subscriber.values().get(0);
+    assertTrue(progress.isComplete());
+    assertEquals(new CRC32().getValue(), progress.getChecksum());
+  }
+
+  private static byte[] readFile(File file) throws Exception {
+    byte[] bytes = new byte[(int) file.length()];
+    DataInputStream input = new DataInputStream(new FileInputStream(file));
+    input.readFully(bytes);
+    input.close();
+    return bytes;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.SingleSubject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectRaceTest {
+  private final TestScheduler scheduler = new TestScheduler();
+  private final RecordingWinner winner = new RecordingWinner();
+
+  @Test public void startsNextAttemptAfterStagger() {
+    SingleSubject<String> first = SingleSubject.create();
+    SingleSubject<String> second = SingleSubject.create();
+
+    TestObserver<String> observer = race(1000, first, second).test();
+    assertTrue(first.hasObservers());
+    assertFalse(second.hasObservers());
+
+    scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+    assertTrue(second.hasObservers());
+
+    second.onSuccess("second");
+    observer.assertResult("second");
+    assertFalse(first.hasObservers());
+    assertEquals(1, winner.index);
+  }
+
+  @Test public void startsNextAttemptOnceThePreviousFails() {
+    SingleSubject<String> first = SingleSubject.create();
+    SingleSubject<String> second = SingleSubject.create();
+
+    TestObserver<String> observer = race(1000, first, second).test();
+    first.onError(new IOException());
+    assertTrue(second.hasObservers());
+
+    second.onSuccess("second");
+    observer.assertResult("second");
+  }
+
+  @Test public void failsWithLastErrorOnceAllFail() {
+    IOException last = new IOException("last");
+
+    race(0, Single.<String>error(new IOException("first")), Single.<String>error(last)).test()
+        .assertError(last);
+    assertEquals(-1, winner.index);
+  }
+
+  @Test public void handsBackValueOfAttemptSucceedingAfterTheWin() {
+    LateAttempt late = new LateAttempt();
+
+    TestObserver<String> observer = race(0, late, Single.just("second")).test();
+    scheduler.triggerActions();
+    observer.assertResult("second");
+    late.observer.onSuccess("late");
+
+    assertEquals(Arrays.asList("late"), winner.lost);
+  }
+
+  @Test public void handsBackValueOfAttemptSucceedingAfterDispose() {
+    LateAttempt late = new LateAttempt();
+
+    race(0, late).test().dispose();
+    late.observer.onSuccess("late");
+
+    assertEquals(Arrays.asList("late"), winner.lost);
+  }
+
+  @SafeVarargs private final Single<String> race(long staggerMillis, Single<String>... attempts) {
+    return new ConnectRace<>(Arrays.asList(attempts), staggerMillis, scheduler).run(winner);
+  }
+
+  /** Attempt which ignores disposal, like a connect which has completed already. */
+  private static final class LateAttempt extends Single<String> {
+    SingleObserver<? super String> observer;
+
+    @Override protected void subscribeActual(SingleObserver<? super String> observer) {
+      observer.onSubscribe(Disposables.empty());
+      this.observer = observer;
+    }
+  }
+
+  private static final class RecordingWinner implements ConnectRace.Winner<String> {
+    int index = -1;
+    final List<String> lost = new ArrayList<>();
+
+    @Override public void onWin(int index, String value) {
+      this.index = index;
+    }
+
+    @Override public void onLose(String value) {
+      lost.add(value);
+    }
+  }
+}
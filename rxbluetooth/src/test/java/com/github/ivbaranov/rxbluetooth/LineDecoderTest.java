@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LineDecoderTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Test public void decodesCharactersAndDelimitersSplitBetweenChunks() throws Exception {
+    String text = "héllo ✓\r\n日本\r\n\r\ntail";
+    byte[] data = text.getBytes(UTF_8);
+
+    for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+      assertEquals(Arrays.asList("héllo ✓", "日本", "", "tail"),
+          decode(new LineDecoder(UTF_8, 100, "\r\n"), data, chunkSize));
+    }
+  }
+
+  @Test public void decodesMultiByteCharset() throws Exception {
+    Charset utf16 = Charset.forName("UTF-16LE");
+    byte[] data = "aกb\nsecond\n".getBytes(utf16);
+
+    assertEquals(Arrays.asList("aกb", "second"),
+        decode(new LineDecoder(utf16, 100, "\n"), data, 3));
+  }
+
+  @Test public void keepsPartialDelimiterMatchAsText() throws Exception {
+    assertEquals(Arrays.asList("a\r", "b\rc"),
+        decode(new LineDecoder(UTF_8, 100, "\r\n"), "a\r\r\nb\rc\r\n".getBytes(UTF_8), 1));
+  }
+
+  @Test public void rejectsTooLongLine() throws Exception {
+    try {
+      decode(new LineDecoder(UTF_8, 3, "\n"), "abcd\n".getBytes(UTF_8), 1);
+      fail();
+    } catch (InvalidFrameException expected) {
+    }
+  }
+
+  @Test public void rejectsTooLongLastLine() throws Exception {
+    try {
+      decode(new LineDecoder(UTF_8, 3, "\n"), "abc\nabcd".getBytes(UTF_8), 2);
+      fail();
+    } catch (InvalidFrameException expected) {
+    }
+  }
+
+  /** Feeds {@code data} in chunks of {@code chunkSize} bytes and flushes the decoder. */
+  private static List<String> decode(LineDecoder decoder, byte[] data, int chunkSize)
+      throws InvalidFrameException {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < data.length; i += chunkSize) {
+      decoder.feed(Arrays.copyOfRange(data, i, Math.min(i + chunkSize, data.length)));
+      while (decoder.next()) {
+        lines.add(new String(decoder.line(), 0, decoder.length()));
+      }
+    }
+    if (decoder.flush()) {
+      lines.add(new String(decoder.line(), 0, decoder.length()));
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReconnectPolicyTest {
+
+  @Test public void allowsMaxAttemptsFailedAttempts() {
+    ReconnectPolicy policy = new ReconnectPolicy(1, 10, TimeUnit.SECONDS, 0, 2);
+
+    // Lost connection isn't a failed attempt, so there is always one reconnect.
+    assertTrue(policy.shouldRetry(0));
+    assertTrue(policy.shouldRetry(1));
+    assertFalse(policy.shouldRetry(2));
+  }
+
+  @Test public void singleAttemptReconnectsOnce() {
+    ReconnectPolicy policy = new ReconnectPolicy(1, 10, TimeUnit.SECONDS, 0, 1);
+
+    assertTrue(policy.shouldRetry(0));
+    assertFalse(policy.shouldRetry(1));
+  }
+
+  @Test public void zeroMaxAttemptsIsUnlimited() {
+    assertTrue(ReconnectPolicy.DEFAULT.shouldRetry(Integer.MAX_VALUE));
+  }
+
+  @Test public void delayDoublesUpToMaximum() {
+    ReconnectPolicy policy = new ReconnectPolicy(1, 10, TimeUnit.SECONDS, 0, 0);
+    Random random = new Random(0);
+
+    assertEquals(1000, policy.delayMillis(1, random));
+    assertEquals(2000, policy.delayMillis(2, random));
+    assertEquals(8000, policy.delayMillis(4, random));
+    assertEquals(10000, policy.delayMillis(5, random));
+    assertEquals(10000, policy.delayMillis(Integer.MAX_VALUE, random));
+  }
+
+  @Test public void jitterReducesDelay() {
+    ReconnectPolicy policy = new ReconnectPolicy(1, 10, TimeUnit.SECONDS, 0.5, 0);
+    Random random = new Random(0);
+
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.delayMillis(2, random);
+      assertTrue(delay > 1000 && delay <= 2000);
+    }
+  }
+}
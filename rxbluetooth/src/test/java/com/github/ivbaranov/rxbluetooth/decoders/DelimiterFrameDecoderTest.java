@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.util.List;
+import org.junit.Test;
+
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.bytes;
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.decode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DelimiterFrameDecoderTest {
+
+  @Test public void splitsFramesInAnyChunks() throws Exception {
+    byte[] data = "ab\r\ncd\r\n\r\nef\r\n".getBytes("US-ASCII");
+
+    for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+      List<byte[]> frames = decode(new DelimiterFrameDecoder((byte) '\r', (byte) '\n'), data,
+          chunkSize);
+
+      assertEquals(4, frames.size());
+      assertArrayEquals("ab".getBytes("US-ASCII"), frames.get(0));
+      assertArrayEquals("cd".getBytes("US-ASCII"), frames.get(1));
+      assertArrayEquals(new byte[0], frames.get(2));
+      assertArrayEquals("ef".getBytes("US-ASCII"), frames.get(3));
+    }
+  }
+
+  @Test public void keepsPartialDelimiterMatchAsData() throws Exception {
+    List<byte[]> frames = decode(new DelimiterFrameDecoder((byte) '\r', (byte) '\n'),
+        "a\r\r\nb\rc\r\n".getBytes("US-ASCII"), 1);
+
+    assertEquals(2, frames.size());
+    assertArrayEquals("a\r".getBytes("US-ASCII"), frames.get(0));
+    assertArrayEquals("b\rc".getBytes("US-ASCII"), frames.get(1));
+  }
+
+  @Test public void flushEmitsIncompleteFrame() throws Exception {
+    List<byte[]> frames = decode(new DelimiterFrameDecoder((byte) 0), bytes(1, 0, 2, 3), 3);
+
+    assertEquals(2, frames.size());
+    assertArrayEquals(bytes(1), frames.get(0));
+    assertArrayEquals(bytes(2, 3), frames.get(1));
+  }
+
+  @Test public void rejectsTooLongFrame() throws Exception {
+    DelimiterFrameDecoder decoder = new DelimiterFrameDecoder(2, (byte) 0);
+
+    try {
+      decode(decoder, bytes(1, 2, 3, 0), 1);
+      fail();
+    } catch (InvalidFrameException expected) {
+    }
+
+    // Decoder starts over after the error.
+    List<byte[]> frames = decode(decoder, bytes(4, 5, 0), 1);
+    assertEquals(1, frames.size());
+    assertArrayEquals(bytes(4, 5), frames.get(0));
+  }
+}
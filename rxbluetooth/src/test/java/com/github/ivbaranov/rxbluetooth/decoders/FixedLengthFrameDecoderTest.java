@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import java.util.List;
+import org.junit.Test;
+
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.bytes;
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.decode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FixedLengthFrameDecoderTest {
+
+  @Test public void splitsFramesInAnyChunks() throws Exception {
+    byte[] data = bytes(1, 2, 3, 4, 5, 6, 7, 8);
+
+    for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+      List<byte[]> frames = decode(new FixedLengthFrameDecoder(3), data, chunkSize);
+
+      // Incomplete last frame is dropped.
+      assertEquals(2, frames.size());
+      assertArrayEquals(bytes(1, 2, 3), frames.get(0));
+      assertArrayEquals(bytes(4, 5, 6), frames.get(1));
+    }
+  }
+}
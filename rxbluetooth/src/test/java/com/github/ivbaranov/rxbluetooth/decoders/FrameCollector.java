@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects copies of frames decoded by a {@link FrameDecoder}.
+ */
+final class FrameCollector implements FrameDecoder.Callback {
+  final List<byte[]> frames = new ArrayList<>();
+
+  @Override public void onFrame(byte[] buffer, int offset, int length) {
+    frames.add(Arrays.copyOfRange(buffer, offset, offset + length));
+  }
+
+  /**
+   * Feeds {@code data} to {@code decoder} in chunks of {@code chunkSize} bytes, the last one may
+   * be shorter, and flushes it.
+   */
+  static List<byte[]> decode(FrameDecoder decoder, byte[] data, int chunkSize)
+      throws InvalidFrameException {
+    FrameCollector collector = new FrameCollector();
+    // Chunks are copied, so that decoders can't rely on data following the chunk.
+    for (int i = 0; i < data.length; i += chunkSize) {
+      byte[] chunk = Arrays.copyOfRange(data, i, Math.min(i + chunkSize, data.length));
+      decoder.decode(chunk, 0, chunk.length, collector);
+    }
+    decoder.flush(collector);
+    return collector.frames;
+  }
+
+  static byte[] bytes(int... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
+}
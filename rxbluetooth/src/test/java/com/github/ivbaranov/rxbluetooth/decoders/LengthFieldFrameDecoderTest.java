@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.nio.ByteOrder;
+import java.util.List;
+import org.junit.Test;
+
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.bytes;
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.decode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LengthFieldFrameDecoderTest {
+
+  @Test public void splitsFramesInAnyChunks() throws Exception {
+    // Type byte, two bytes of length and the data.
+    byte[] data = bytes(9, 0, 2, 7, 7, 8, 0, 0, 9, 0, 1, 5);
+
+    for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+      List<byte[]> frames = decode(new LengthFieldFrameDecoder(1, 2, 100), data, chunkSize);
+
+      assertEquals(3, frames.size());
+      assertArrayEquals(bytes(9, 0, 2, 7, 7), frames.get(0));
+      assertArrayEquals(bytes(8, 0, 0), frames.get(1));
+      assertArrayEquals(bytes(9, 0, 1, 5), frames.get(2));
+    }
+  }
+
+  @Test public void stripsHeaderAndAdjustsLength() throws Exception {
+    // Little endian length of the whole frame, header is stripped.
+    LengthFieldFrameDecoder decoder =
+        new LengthFieldFrameDecoder(0, 2, -2, 2, 100, ByteOrder.LITTLE_ENDIAN);
+
+    List<byte[]> frames = decode(decoder, bytes(4, 0, 1, 2, 3, 0, 3), 3);
+
+    assertEquals(2, frames.size());
+    assertArrayEquals(bytes(1, 2), frames.get(0));
+    assertArrayEquals(bytes(3), frames.get(1));
+  }
+
+  @Test public void dropsIncompleteFrameOnFlush() throws Exception {
+    List<byte[]> frames = decode(new LengthFieldFrameDecoder(0, 1, 100), bytes(1, 5, 3, 6), 2);
+
+    assertEquals(1, frames.size());
+    assertArrayEquals(bytes(1, 5), frames.get(0));
+  }
+
+  @Test public void rejectsTooLongFrame() throws Exception {
+    try {
+      decode(new LengthFieldFrameDecoder(0, 1, 4), bytes(4, 1, 2, 3, 4), 1);
+      fail();
+    } catch (InvalidFrameException expected) {
+    }
+  }
+
+  @Test public void tlvFramesIncludeWholeRecord() throws Exception {
+    List<byte[]> frames = decode(new TlvFrameDecoder(), bytes(1, 2, 7, 7, 3, 0), 1);
+
+    assertEquals(2, frames.size());
+    assertArrayEquals(bytes(1, 2, 7, 7), frames.get(0));
+    assertArrayEquals(bytes(3, 0), frames.get(1));
+    assertTrue(decode(new TlvFrameDecoder(), bytes(1, 2, 7), 1).isEmpty());
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.decoders;
+
+import com.github.ivbaranov.rxbluetooth.exceptions.InvalidFrameException;
+import java.util.List;
+import org.junit.Test;
+
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.bytes;
+import static com.github.ivbaranov.rxbluetooth.decoders.FrameCollector.decode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SlipFrameDecoderTest {
+
+  @Test public void unescapesFramesInAnyChunks() throws Exception {
+    byte[] data = bytes(0xC0, 1, 0xDB, 0xDC, 2, 0xDB, 0xDD, 0xC0, 0xC0, 5, 0xC0, 6);
+
+    for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+      List<byte[]> frames = decode(new SlipFrameDecoder(), data, chunkSize);
+
+      // Empty frames are skipped, incomplete last one is dropped.
+      assertEquals(2, frames.size());
+      assertArrayEquals(bytes(1, 0xC0, 2, 0xDB), frames.get(0));
+      assertArrayEquals(bytes(5), frames.get(1));
+    }
+  }
+
+  @Test public void rejectsTooLongFrame() throws Exception {
+    try {
+      decode(new SlipFrameDecoder(2), bytes(1, 2, 3, 0xC0), 1);
+      fail();
+    } catch (InvalidFrameException expected) {
+    }
+  }
+}
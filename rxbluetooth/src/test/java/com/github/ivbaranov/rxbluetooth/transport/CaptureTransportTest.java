@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 Ivan Baranov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ivbaranov.rxbluetooth.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CaptureTransportTest {
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test public void replaysBytesReadInCapturedSizes() throws Exception {
+    File file = folder.newFile();
+    CaptureFile capture = new CaptureFile(file, 4096);
+    LoopbackTransport loopback = new LoopbackTransport();
+    CaptureTransport transport = new CaptureTransport(loopback, capture);
+    LoopbackTransport device = loopback.getPeer();
+
+    device.getOutputStream().write(new byte[] { 1, 2 });
+    assertArrayEquals(new byte[] { 1, 2 }, read(transport.getInputStream()));
+    transport.getOutputStream().write(new byte[] { 9 });
+    device.getOutputStream().write(new byte[] { 3, 4, 5 });
+    assertArrayEquals(new byte[] { 3, 4, 5 }, read(transport.getInputStream()));
+    // Writes pass through to the device.
+    assertEquals(9, device.getInputStream().read());
+    transport.close();
+    capture.close();
+
+    ReplayTransport replay = new ReplayTransport(file, ReplayTransport.UNLIMITED_SPEED);
+    replay.getOutputStream().write(new byte[] { 9 });
+    assertArrayEquals(new byte[] { 1, 2 }, read(replay.getInputStream()));
+    assertArrayEquals(new byte[] { 3, 4, 5 }, read(replay.getInputStream()));
+    assertEquals(-1, replay.getInputStream().read(new byte[16]));
+    replay.close();
+  }
+
+  @Test public void keepsLatestRecordsOnceFull() throws Exception {
+    File file = folder.newFile();
+    CaptureFile capture = new CaptureFile(file, 1024);
+    LoopbackTransport loopback = new LoopbackTransport();
+    CaptureTransport transport = new CaptureTransport(loopback, capture);
+
+    byte[] record = new byte[100];
+    for (int i = 0; i < 100; i++) {
+      Arrays.fill(record, (byte) i);
+      loopback.getPeer().getOutputStream().write(record);
+      read(transport.getInputStream());
+    }
+    capture.close();
+
+    ReplayTransport replay = new ReplayTransport(file, ReplayTransport.UNLIMITED_SPEED);
+    int records = 0;
+    byte[] last = null;
+    for (byte[] bytes = read(replay.getInputStream()); bytes.length > 0;
+        bytes = read(replay.getInputStream())) {
+      records++;
+      last = bytes;
+    }
+    replay.close();
+
+    assertTrue(records > 0 && records < 100);
+    assertArrayEquals(record, last);
+  }
+
+  @Test(expected = IOException.class) public void rejectsOtherFiles() throws Exception {
+    new ReplayTransport(folder.newFile());
+  }
+
+  /** Returns bytes of one read, empty at the end of stream. */
+  private static byte[] read(InputStream input) throws IOException {
+    byte[] buffer = new byte[1024];
+    int read = input.read(buffer);
+    return Arrays.copyOf(buffer, Math.max(read, 0));
+  }
+}